@@ -0,0 +1,157 @@
+package org.example.service;
+
+import org.example.database.ConexaoFactory;
+import org.example.database.DadosDAO;
+import org.example.database.GravadorViagens;
+import org.example.database.ResumoViagens;
+import org.example.model.Cidade;
+import org.example.model.Orgao;
+import org.example.model.Viagem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Grava as mesmas viagens na tabela fato em lote (addBatch/executeBatch) e por LOAD DATA LOCAL INFILE,
+ * com percentualInvalidas delas com id_processo maior que a coluna (o LOAD DATA só avisa; ver
+ * CargaViagensLoadData), e desfaz tudo (rollback) no fim de cada invocação.
+ * <p>
+ * As viagens são as primeiras totalViagens linhas válidas de um arquivo do Portal da Transparência
+ * (CSV ou ZIP, convertidas como na importação): -Djmh.filtro="GravacaoViagens -p arquivo=/caminho/Viagem.csv".
+ * Sem arquivo, são totalViagens viagens sintéticas. Use um banco que ainda não tenha essas viagens,
+ * senão todas caem como chave duplicada.
+ * <p>
+ * Precisa do banco configurado em ConexaoFactory, com local_infile=ON. Tudo roda numa transação que é
+ * desfeita no fim, inclusive os órgãos e cidades criados para as viagens: o banco fica como estava.
+ * <p>
+ * Rodar: mvn -P benchmark compile exec:exec -Djmh.filtro=GravacaoViagens
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class GravacaoViagensBenchmark {
+
+    private static final int TAMANHO_LOTE = 1_000;
+
+    @Param({"100000"})
+    public int totalViagens;
+
+    @Param({"0", "1"})
+    public int percentualInvalidas;
+
+    @Param({""})
+    public String arquivo;
+
+    private final DadosDAO dao = new DadosDAO();
+    private final AtomicLong falhas = new AtomicLong();
+    private Connection conn;
+    private Savepoint comDimensoes;
+    private List<Viagem> viagens;
+
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException, IOException {
+        conn = ConexaoFactory.getConexaoImportacao(true);
+        conn.setAutoCommit(false); // Órgãos e cidades também são desfeitos em fechar()
+
+        viagens = arquivo.isEmpty() ? gerarViagens() : lerViagens();
+        GestaoEntidadesUnicas entidades = new GestaoEntidadesUnicas();
+        Random aleatorio = new Random(42);
+        for (Viagem viagem : viagens) {
+            viagem.getOrgao().setId(entidades.salvarOuRecuperarOrgao(conn, viagem.getOrgao()));
+            viagem.getDestino().setId(entidades.salvarOuRecuperarCidade(conn, viagem.getDestino()));
+            if (aleatorio.nextInt(100) < percentualInvalidas) {
+                viagem.setIdProcesso("X".repeat(300) + viagem.getIdProcesso()); // VARCHAR(255)
+            }
+        }
+        comDimensoes = conn.setSavepoint();
+    }
+
+    @TearDown(Level.Trial)
+    public void fechar() throws SQLException {
+        conn.rollback();
+        conn.setAutoCommit(true);
+        conn.close();
+    }
+
+    @Benchmark
+    public int gravarEmLote() throws SQLException {
+        return gravar(dao.abrirLoteViagens(conn, TAMANHO_LOTE, (linha, mensagem) -> falhas.incrementAndGet(),
+                new ResumoViagens()));
+    }
+
+    @Benchmark
+    public int gravarLoadData() throws SQLException {
+        return gravar(dao.abrirCargaLoadData(conn, (linha, mensagem) -> falhas.incrementAndGet(), new ResumoViagens()));
+    }
+
+    private int gravar(GravadorViagens gravador) throws SQLException {
+        int gravadas = 0;
+        try (gravador) {
+            for (int i = 0; i < viagens.size(); i++) {
+                gravador.adicionar(viagens.get(i), i + 2);
+                if ((i + 1) % (TAMANHO_LOTE * 10) == 0) gravadas += gravador.executar();
+            }
+            gravadas += gravador.executar();
+        } finally {
+            conn.rollback(comDimensoes); // Só as viagens: órgãos e cidades continuam para a próxima invocação
+        }
+        return gravadas;
+    }
+
+    private List<Viagem> gerarViagens() {
+        Orgao orgao = new Orgao("ORGAO BENCHMARK");
+        Cidade cidade = new Cidade("CIDADE BENCHMARK", "DF");
+        Random aleatorio = new Random(42);
+        List<Viagem> geradas = new ArrayList<>(totalViagens);
+        for (int i = 0; i < totalViagens; i++) {
+            Viagem viagem = new Viagem("BENCHMARK-" + i, LocalDate.of(2023, 1, 1).plusDays(aleatorio.nextInt(365)),
+                    aleatorio.nextInt(500_000) / 100.0, orgao, cidade);
+            viagem.setHashConteudo(aleatorio.nextLong());
+            geradas.add(viagem);
+        }
+        return geradas;
+    }
+
+    private List<Viagem> lerViagens() throws IOException {
+        List<Viagem> lidas = new ArrayList<>(totalViagens);
+        try (LeitorLinhasCsv leitor = ArquivoZipViagens.ehZip(arquivo)
+                ? new LeitorCsvBytes(ArquivoZipViagens.abrirEntradaViagens(arquivo))
+                : new LeitorCsvBytes(arquivo)) {
+            leitor.proximaLinha(); // Cabeçalho
+            String[] colunas;
+            while (lidas.size() < totalViagens && (colunas = leitor.proximaLinha()) != null) {
+                try {
+                    Viagem viagem = ServicoImportacao.converterColunas(colunas);
+                    if (viagem != null) lidas.add(viagem);
+                } catch (RuntimeException e) {
+                    // Linha que a importação também descartaria
+                }
+            }
+        }
+        return lidas;
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lê um arquivo inteiro com cada leitor (OpenCSV, bytes e mapeado em paralelo) e conta as linhas.
+ * <p>
+ * O arquivo é gerado no layout do Portal da Transparência (22 colunas, todas entre aspas),
+ * com o tamanho de tamanhoMb (1 GB por padrão). Para usar um arquivo real: -Djmh.filtro="LeitorCsv -p arquivo=/caminho/Viagem.csv".
+ * <p>
+ * Rodar: mvn -P benchmark compile exec:exec -Djmh.filtro=LeitorCsv
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class LeitorCsvBenchmark {
+
+    @Param({"1024"})
+    public int tamanhoMb;
+
+    @Param({""})
+    public String arquivo;
+
+    private Path caminho;
+    private boolean gerado;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        if (!arquivo.isEmpty()) {
+            caminho = Path.of(arquivo);
+            return;
+        }
+        caminho = Files.createTempFile("viagens-benchmark", ".csv");
+        gerado = true;
+        gerarArquivo(caminho, (long) tamanhoMb * 1024 * 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() throws IOException {
+        if (gerado) Files.deleteIfExists(caminho);
+    }
+
+    @Benchmark
+    public long lerOpenCsv() throws IOException {
+        return contar(new LeitorCsvOpenCsv(caminho.toString()));
+    }
+
+    @Benchmark
+    public long lerBytes() throws IOException {
+        return contar(new LeitorCsvBytes(caminho.toString()));
+    }
+
+    @Benchmark
+    public long lerMapeadoParalelo() throws IOException {
+        return contar(new LeitorCsvParalelo(caminho.toString(), Runtime.getRuntime().availableProcessors()));
+    }
+
+    private static long contar(LeitorLinhasCsv leitor) throws IOException {
+        long soma = 0;
+        try (leitor) {
+            String[] colunas;
+            while ((colunas = leitor.proximaLinha()) != null) {
+                soma += colunas.length == 0 ? 0 : colunas[ColunasViagem.OUTROS].length();
+            }
+        }
+        return soma;
+    }
+
+    private static void gerarArquivo(Path destino, long tamanhoBytes) throws IOException {
+        String[] orgaos = {"Ministério da Educação", "Ministério da Saúde", "Ministério da Justiça e Segurança Pública",
+                "Ministério da Defesa", "Ministério da Economia"};
+        String[] destinos = {"Brasília/DF", "São Paulo/SP", "Rio de Janeiro/RJ", "João Pessoa/PB", "Belém/PA"};
+        Random aleatorio = new Random(42);
+
+        try (BufferedWriter escritor = Files.newBufferedWriter(destino, StandardCharsets.ISO_8859_1)) {
+            escritor.write("\"Identificador do processo de viagem\";\"Número da Proposta (PCDP)\";\"Situação\";"
+                    + "\"Viagem Urgente\";\"Justificativa Urgência Viagem\";\"Código do órgão superior\";"
+                    + "\"Nome do órgão superior\";\"Código órgão solicitante\";\"Nome órgão solicitante\";"
+                    + "\"CPF viajante\";\"Nome\";\"Cargo\";\"Função\";\"Descrição Função\";\"Período - Data de início\";"
+                    + "\"Período - Data de fim\";\"Destinos\";\"Motivo\";\"Valor diárias\";\"Valor passagens\";"
+                    + "\"Valor devolução\";\"Valor outros gastos\"\n");
+
+            long escritos = 0;
+            long processo = 10_000_000L;
+            StringBuilder linha = new StringBuilder(512);
+            while (escritos < tamanhoBytes) {
+                String orgao = orgaos[aleatorio.nextInt(orgaos.length)];
+                int dia = 1 + aleatorio.nextInt(28);
+                int mes = 1 + aleatorio.nextInt(12);
+                linha.setLength(0);
+                linha.append('"').append(processo++).append("\";\"").append(aleatorio.nextInt(999_999)).append("/23\";")
+                        .append("\"Realizada\";\"NÃO\";\"Sem informação\";\"26000\";\"").append(orgao).append("\";")
+                        .append("\"26243\";\"").append(orgao).append("\";\"***.123.456-**\";\"FULANO DE TAL\";")
+                        .append("\"Professor do Magistério Superior\";\"Sem informação\";\"Sem informação\";")
+                        .append(String.format("\"%02d/%02d/2023\";\"%02d/%02d/2023\";\"", dia, mes, dia, mes))
+                        .append(destinos[aleatorio.nextInt(destinos.length)])
+                        .append("\";\"Participar de reunião técnica, com \"\"aspas\"\" no texto\";")
+                        .append(String.format("\"%d,%02d\";\"%d.%03d,%02d\";\"0,00\";\"%d,%02d\"\n",
+                                aleatorio.nextInt(3000), aleatorio.nextInt(100),
+                                aleatorio.nextInt(5), aleatorio.nextInt(1000), aleatorio.nextInt(100),
+                                aleatorio.nextInt(500), aleatorio.nextInt(100)));
+                escritor.append(linha);
+                escritos += linha.length();
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.service;
+
+import org.example.database.DadosDAO;
+import org.example.dto.FiltroViagensDTO;
+import org.example.dto.GrupoViagensDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agrupa uma cópia em memória com totalViagens viagens sintéticas (500 órgãos, 5.000 cidades em 27 UFs,
+ * 5 anos de datas), sem filtro e com filtro de UF, meses e valor.
+ * <p>
+ * Rodar: mvn -P benchmark compile exec:exec -Djmh.filtro=SnapshotViagens
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class SnapshotViagensBenchmark {
+
+    private static final int ORGAOS = 500;
+    private static final int CIDADES = 5_000;
+    private static final int UFS = 27;
+
+    @Param({"1000000"})
+    public int totalViagens;
+
+    private SnapshotViagens snapshot;
+    private final FiltroViagensDTO semFiltro = new FiltroViagensDTO();
+    private final FiltroViagensDTO comFiltro = new FiltroViagensDTO();
+
+    @Setup(Level.Trial)
+    public void carregar() throws Exception {
+        int primeiroDia = (int) LocalDate.of(2019, 1, 1).toEpochDay();
+        DadosDAO falso = new DadosDAO() {
+            @Override
+            public void carregarDimensoes(Connection conn, LeitorDimensao leitor) {
+                for (int id = 1; id <= ORGAOS; id++) leitor.aceitar(true, id, "ORGAO " + id, null);
+                for (int id = 1; id <= CIDADES; id++) leitor.aceitar(false, id, "CIDADE " + id, "U" + (id % UFS));
+            }
+
+            @Override
+            public void carregarFatosViagens(Connection conn, LeitorFatoViagem leitor) {
+                Random aleatorio = new Random(42);
+                for (int i = 0; i < totalViagens; i++) {
+                    leitor.aceitar(1 + aleatorio.nextInt(ORGAOS), 1 + aleatorio.nextInt(CIDADES),
+                            primeiroDia + aleatorio.nextInt(5 * 365), 1_000 + aleatorio.nextInt(1_000_000));
+                }
+            }
+        };
+        snapshot = SnapshotViagens.carregar(null, falso);
+
+        comFiltro.setUf("U5");
+        comFiltro.setMesInicial(YearMonth.of(2021, 1));
+        comFiltro.setMesFinal(YearMonth.of(2021, 12));
+        comFiltro.setValorMinimo(1_000.0);
+    }
+
+    @Benchmark
+    public List<GrupoViagensDTO> porOrgaoSemFiltro() {
+        return snapshot.agrupar(semFiltro, AgrupamentoViagens.ORGAO);
+    }
+
+    @Benchmark
+    public List<GrupoViagensDTO> porMesComFiltro() {
+        return snapshot.agrupar(comFiltro, AgrupamentoViagens.MES);
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara a conversão dos quatro valores de uma linha do CSV:
+ * converterValor (replace + Double.parseDouble, como era feito) contra converterValorCentavos
+ * (lendo a String ou direto os bytes do arquivo).
+ * <p>
+ * Rodar: mvn -P benchmark compile exec:exec -Djmh.filtro=ConverterValor
+ * O caminho antigo inclui o limparTexto original, que a importação fazia antes de converter cada valor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConverterValorBenchmark {
+
+    // Valores no formato do Portal da Transparência (diárias, passagens, devolução, outros)
+    private static final String[][] LINHAS = {
+            {"1.234,56", "2.870,12", "0,00", "0,00"},
+            {"335,55", "0,00", "0,00", "96,00"},
+            {"\"12.004,10\"", "\"1.503,77\"", "\"120,50\"", "\"0,00\""},
+            {"0,00", "4.321,09", "0,00", "37,40"},
+            {"177,26", "982,65", "177,26", "0,00"},
+            {"10.080,00", "6.013,33", "0,00", "1.250,00"},
+            {"", "743,21", "0,00", "0,00"},
+            {"58,20", "0,00", "0,00", "0,00"},
+    };
+
+    private byte[][][] linhasBytes;
+    private int proxima;
+
+    @Setup
+    public void preparar() {
+        linhasBytes = new byte[LINHAS.length][][];
+        for (int i = 0; i < LINHAS.length; i++) {
+            linhasBytes[i] = new byte[LINHAS[i].length][];
+            for (int j = 0; j < LINHAS[i].length; j++) {
+                linhasBytes[i][j] = LINHAS[i][j].getBytes(StandardCharsets.ISO_8859_1);
+            }
+        }
+    }
+
+    private int proximaLinha() {
+        int linha = proxima;
+        proxima = (proxima + 1) % LINHAS.length;
+        return linha;
+    }
+
+    @Benchmark
+    public double converterValorDouble() {
+        String[] v = LINHAS[proximaLinha()];
+        Double diarias = TratamentoDados.converterValor(TratamentoDados.limparTextoCompleto(v[0]));
+        Double passagens = TratamentoDados.converterValor(TratamentoDados.limparTextoCompleto(v[1]));
+        Double devolucao = TratamentoDados.converterValor(TratamentoDados.limparTextoCompleto(v[2]));
+        Double outros = TratamentoDados.converterValor(TratamentoDados.limparTextoCompleto(v[3]));
+        return diarias + passagens + outros - devolucao;
+    }
+
+    @Benchmark
+    public long converterValorCentavosString() {
+        String[] v = LINHAS[proximaLinha()];
+        return TratamentoDados.converterValorCentavos(v[0])
+                + TratamentoDados.converterValorCentavos(v[1])
+                + TratamentoDados.converterValorCentavos(v[3])
+                - TratamentoDados.converterValorCentavos(v[2]);
+    }
+
+    @Benchmark
+    public long converterValorCentavosBytes() {
+        byte[][] v = linhasBytes[proximaLinha()];
+        return TratamentoDados.converterValorCentavos(v[0], 0, v[0].length)
+                + TratamentoDados.converterValorCentavos(v[1], 0, v[1].length)
+                + TratamentoDados.converterValorCentavos(v[3], 0, v[3].length)
+                - TratamentoDados.converterValorCentavos(v[2], 0, v[2].length);
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara o limparTexto com tabela Latin-1 contra o algoritmo original (Normalizer + regex).
+ * <p>
+ * Rodar: mvn -P benchmark compile exec:exec -Djmh.filtro=LimparTexto
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LimparTextoBenchmark {
+
+    @Param({
+            "MINISTERIO DA EDUCACAO",        // Já limpo: caminho rápido, sem alocação
+            "\"Ministério da Educação\"",    // Com aspas, acentos e minúsculas
+            " São João del-Rei/MG "          // Destino bruto
+    })
+    public String texto;
+
+    @Benchmark
+    public String limparTextoTabela() {
+        return TratamentoDados.limparTexto(texto);
+    }
+
+    @Benchmark
+    public String limparTextoNormalizer() {
+        return TratamentoDados.limparTextoCompleto(texto);
+    }
+}
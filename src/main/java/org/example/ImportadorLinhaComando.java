@@ -0,0 +1,54 @@
+package org.example;
+
+import org.example.database.ConexaoFactory;
+import org.example.service.ConfiguracaoImportacao;
+import org.example.service.ModoGravacao;
+import org.example.service.ServicoImportacao;
+import org.example.service.TipoLeitorCsv;
+
+/**
+ * Importação sem interface gráfica (servidor de carga, comparação de desempenho).
+ * <p>
+ * Uso: ImportadorLinhaComando arquivo.csv|arquivo.zip [LOTE|LOAD_DATA|LINHA_A_LINHA] [transformadores] [gravadores] [BYTES|OPENCSV|MAPEADO_PARALELO] [COMPLETA|DELTA]
+ * <p>
+ * DELTA: só insere as viagens novas e regrava as alteradas (ver ServicoImportacao.importarDelta).
+ * <p>
+ * Para comparar os modos de gravação, importe o mesmo arquivo em um banco vazio com cada modo
+ * e compare as linhas/s impressas no fim.
+ */
+public class ImportadorLinhaComando {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Uso: ImportadorLinhaComando arquivo.csv|arquivo.zip [LOTE|LOAD_DATA|LINHA_A_LINHA] [transformadores] [gravadores] [BYTES|OPENCSV|MAPEADO_PARALELO] [COMPLETA|DELTA]");
+            System.exit(2);
+        }
+
+        ConfiguracaoImportacao config = new ConfiguracaoImportacao();
+        if (args.length > 1) config.setModoGravacao(ModoGravacao.valueOf(args[1].toUpperCase()));
+        if (args.length > 2) config.setNumeroTransformadores(Integer.parseInt(args[2]));
+        if (args.length > 3) config.setNumeroEscritores(Integer.parseInt(args[3]));
+        if (args.length > 4) config.setTipoLeitorCsv(TipoLeitorCsv.valueOf(args[4].toUpperCase()));
+        if (args.length > 5) config.setImportacaoDelta(lerTipoImportacao(args[5]));
+
+        // Uma linha de progresso a cada 5 segundos (o resumo final é impresso pela importação)
+        config.setIntervaloProgressoMs(5_000);
+        config.setOuvinteProgresso(progresso -> {
+            if (!progresso.isConcluida()) System.out.println(progresso);
+        });
+
+        try {
+            ServicoImportacao.excetuarImportacao(args[0], config);
+        } finally {
+            ConexaoFactory.fecharPool();
+        }
+    }
+
+    private static boolean lerTipoImportacao(String tipo) {
+        return switch (tipo.toUpperCase()) {
+            case "DELTA" -> true;
+            case "COMPLETA" -> false;
+            default -> throw new IllegalArgumentException("Tipo de importação inválido (use COMPLETA ou DELTA): " + tipo);
+        };
+    }
+}
@@ -0,0 +1,305 @@
+package org.example.database;
+
+import org.example.model.Viagem;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Carga da tabela fato (viagem) pelo carregador nativo do MariaDB: LOAD DATA LOCAL INFILE.
+ * <p>
+ * As viagens já limpas e com as chaves resolvidas são escritas como texto separado por TAB
+ * num buffer em memória; no executar() o buffer é entregue ao driver como InputStream
+ * (setLocalInfileInputStream), sem arquivo temporário em disco.
+ * O tamanho do buffer é limitado pelo que quem chama acumula entre um executar() e outro.
+ * <p>
+ * Requer allowLocalInfile=true na URL (ver ConexaoFactory) e local_infile=ON no servidor.
+ * <p>
+ * O LOAD DATA LOCAL não falha por linha: pula as linhas com chave duplicada e grava valores inválidos
+ * (texto longo demais, número fora da faixa, data inválida) truncados ou trocados pelo padrão,
+ * deixando só um aviso. Por isso, depois de cada carga, os avisos são lidos (SHOW WARNINGS):
+ * <ul>
+ *   <li>Aviso de valor alterado: a carga é desfeita (savepoint), as linhas avisadas são recusadas
+ *       como falhas, uma a uma, e a carga é refeita sem elas. Nenhuma viagem fica gravada com valor alterado.</li>
+ *   <li>Chave duplicada: a linha não foi gravada; elas são contadas pela diferença entre linhas enviadas
+ *       e afetadas. Como não dá para saber quais foram, o ResumoViagens é marcado como inexato
+ *       (ver DadosDAO.recalcularResumos()).</li>
+ *   <li>Aviso sem o número da linha: a carga é desfeita e todas as linhas do buffer são recusadas.</li>
+ * </ul>
+ * Precisa de uma transação aberta (autocommit desligado), por causa do savepoint.
+ */
+public class CargaViagensLoadData implements GravadorViagens {
+
+    // O nome do arquivo é ignorado: o conteúdo vem do InputStream
+    private static final String SQL_CARGA =
+            "LOAD DATA LOCAL INFILE 'viagens.tsv' INTO TABLE viagem CHARACTER SET utf8mb4 " +
+            "FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' " +
+            "(id_processo, data_inicio, valor_total, fk_orgao, fk_destino, hash_conteudo)";
+
+    // Chave duplicada: a linha foi pulada, não gravada
+    private static final int ERRO_CHAVE_DUPLICADA = 1062;
+
+    // Número da linha da carga no aviso: "... at row 12" ou "Row 12 was truncated ..."
+    private static final Pattern LINHA_DO_AVISO = Pattern.compile("at row (\\d+)$|^Row (\\d+)");
+
+    private final Connection conn;
+    private final BiConsumer<Integer, String> aoFalhar;
+    private final Buffer buffer = new Buffer();
+    private final ResumoViagens resumo; // Pode ser null
+
+    // Viagens no buffer, para o resumo (só guardadas se houver resumo)
+    private final List<Viagem> viagensPendentes = new ArrayList<>();
+
+    private int pendentes = 0;
+
+    // Para cada viagem no buffer: onde ela termina no buffer e a linha do arquivo
+    private int[] fimNoBuffer = new int[1024];
+    private int[] linhaNoArquivo = new int[1024];
+    private int primeiraLinhaPendente = -1;
+    private int ultimaLinhaPendente = -1;
+    private long totalFalhas = 0;
+
+    CargaViagensLoadData(Connection conn, BiConsumer<Integer, String> aoFalhar, ResumoViagens resumo) {
+        this.conn = conn;
+        this.aoFalhar = aoFalhar;
+        this.resumo = resumo;
+    }
+
+    /**
+     * Escreve a viagem no buffer (mesma ordem de colunas do SQL_CARGA).
+     */
+    @Override
+    public void adicionar(Viagem viagem, int linha) {
+        escreverTexto(viagem.getIdProcesso());
+        buffer.write('\t');
+        escreverAscii(viagem.getDataInicio().toString()); // yyyy-MM-dd
+        buffer.write('\t');
+        escreverAscii(BigDecimal.valueOf(viagem.getValorTotal()).toPlainString());
+        buffer.write('\t');
+        escreverAscii(Integer.toString(viagem.getOrgao().getId()));
+        buffer.write('\t');
+        escreverAscii(Integer.toString(viagem.getDestino().getId()));
+        buffer.write('\t');
+        escreverAscii(viagem.getHashConteudo() != null ? Long.toString(viagem.getHashConteudo()) : "\\N");
+        buffer.write('\n');
+
+        if (resumo != null) viagensPendentes.add(viagem);
+        if (pendentes == fimNoBuffer.length) {
+            fimNoBuffer = Arrays.copyOf(fimNoBuffer, pendentes * 2);
+            linhaNoArquivo = Arrays.copyOf(linhaNoArquivo, pendentes * 2);
+        }
+        fimNoBuffer[pendentes] = buffer.size();
+        linhaNoArquivo[pendentes] = linha;
+        if (pendentes == 0) primeiraLinhaPendente = linha;
+        ultimaLinhaPendente = linha;
+        pendentes++;
+    }
+
+    @Override
+    public int executar() throws SQLException {
+        if (pendentes == 0) return 0;
+
+        // Viagens do buffer recusadas por aviso de valor alterado (ficam fora da carga)
+        boolean[] recusada = new boolean[pendentes];
+        int recusadasPorAviso = 0;
+        int[] enviadas = new int[pendentes]; // Linha da carga (a partir de 0) -> viagem no buffer
+        int totalEnviadas;
+        long afetadas;
+
+        Savepoint antesDaCarga = conn.setSavepoint();
+        try (Statement stmt = conn.createStatement()) {
+            while (true) {
+                totalEnviadas = 0;
+                for (int i = 0; i < pendentes; i++) {
+                    if (!recusada[i]) enviadas[totalEnviadas++] = i;
+                }
+                if (totalEnviadas == 0) {
+                    afetadas = 0;
+                    break;
+                }
+                afetadas = carregar(stmt, recusadasPorAviso == 0 ? null : enviadas, totalEnviadas);
+
+                Map<Integer, String> avisos = lerAvisos(stmt, totalEnviadas);
+                if (avisos != null && avisos.isEmpty()) break;
+                conn.rollback(antesDaCarga);
+                if (avisos == null) {
+                    conn.releaseSavepoint(antesDaCarga);
+                    recusarRestantes(totalEnviadas);
+                    return 0;
+                }
+                for (Map.Entry<Integer, String> aviso : avisos.entrySet()) {
+                    int viagem = enviadas[aviso.getKey() - 1];
+                    recusada[viagem] = true;
+                    recusadasPorAviso++;
+                    totalFalhas++;
+                    aoFalhar.accept(linhaNoArquivo[viagem], "Valor inválido recusado pelo LOAD DATA: " + aviso.getValue());
+                }
+            }
+        }
+        conn.releaseSavepoint(antesDaCarga);
+
+        int gravadas = (int) Math.min(afetadas, totalEnviadas);
+        int duplicadas = totalEnviadas - gravadas;
+        if (duplicadas > 0) {
+            totalFalhas += duplicadas;
+            aoFalhar.accept(primeiraLinhaPendente, duplicadas + " linha(s) entre " + primeiraLinhaPendente
+                    + " e " + ultimaLinhaPendente + " recusada(s) pelo LOAD DATA (chave duplicada)");
+        }
+
+        if (resumo != null) {
+            if (duplicadas == 0) {
+                for (int i = 0; i < pendentes; i++) {
+                    if (!recusada[i]) resumo.somar(viagensPendentes.get(i));
+                }
+            } else {
+                resumo.marcarInexato();
+            }
+        }
+
+        limparPendentes();
+        return gravadas;
+    }
+
+    /**
+     * Manda ao banco as viagens do buffer: todas (enviadas = null) ou só as listadas, na ordem.
+     * Retorna as linhas afetadas.
+     */
+    private long carregar(Statement stmt, int[] enviadas, int totalEnviadas) throws SQLException {
+        byte[] conteudo = buffer.conteudo();
+        int tamanho = buffer.size();
+        if (enviadas != null) {
+            // Copia só as viagens que continuam na carga
+            ByteArrayOutputStream selecionadas = new ByteArrayOutputStream(tamanho);
+            for (int i = 0; i < totalEnviadas; i++) {
+                int viagem = enviadas[i];
+                int inicio = viagem == 0 ? 0 : fimNoBuffer[viagem - 1];
+                selecionadas.write(conteudo, inicio, fimNoBuffer[viagem] - inicio);
+            }
+            conteudo = selecionadas.toByteArray();
+            tamanho = conteudo.length;
+        }
+        stmt.unwrap(org.mariadb.jdbc.Statement.class)
+                .setLocalInfileInputStream(new ByteArrayInputStream(conteudo, 0, tamanho));
+        return stmt.executeLargeUpdate(SQL_CARGA);
+    }
+
+    /**
+     * Avisos da última carga que alteraram valores: linha da carga (a partir de 1) -> mensagem.
+     * Os de chave duplicada ficam de fora. Retorna null se algum não puder ser ligado a uma linha
+     * enviada, ou se os avisos passaram de max_error_count e nenhum dos listados foi identificado
+     * (se algum foi, os que não foram listados aparecem de novo quando a carga for refeita).
+     */
+    private Map<Integer, String> lerAvisos(Statement stmt, int totalEnviadas) throws SQLException {
+        long total;
+        try (ResultSet rs = stmt.executeQuery("SHOW COUNT(*) WARNINGS")) {
+            total = rs.next() ? rs.getLong(1) : 0;
+        }
+        if (total == 0) return Map.of();
+
+        Map<Integer, String> avisos = new HashMap<>();
+        long listados = 0;
+        try (ResultSet rs = stmt.executeQuery("SHOW WARNINGS")) {
+            while (rs.next()) {
+                listados++;
+                if (rs.getInt("Code") == ERRO_CHAVE_DUPLICADA) continue;
+                String mensagem = rs.getString("Message");
+                Matcher linha = LINHA_DO_AVISO.matcher(mensagem);
+                if (!linha.find()) return null;
+                int numero = Integer.parseInt(linha.group(1) != null ? linha.group(1) : linha.group(2));
+                if (numero < 1 || numero > totalEnviadas) return null;
+                avisos.putIfAbsent(numero, mensagem);
+            }
+        }
+        if (avisos.isEmpty() && listados < total) return null;
+        return avisos;
+    }
+
+    /**
+     * A carga foi desfeita sem saber quais linhas deram problema: recusa todas as que ainda estavam nela.
+     */
+    private void recusarRestantes(int restantes) {
+        totalFalhas += restantes;
+        aoFalhar.accept(primeiraLinhaPendente, restantes + " linha(s) entre " + primeiraLinhaPendente
+                + " e " + ultimaLinhaPendente + " recusada(s): o LOAD DATA avisou de valores alterados sem dizer a linha");
+        limparPendentes();
+    }
+
+    private void limparPendentes() {
+        viagensPendentes.clear();
+        buffer.reset();
+        pendentes = 0;
+    }
+
+    @Override
+    public long getTotalFalhas() {
+        return totalFalhas;
+    }
+
+    @Override
+    public void close() {
+        buffer.reset();
+        viagensPendentes.clear();
+    }
+
+    /**
+     * Texto livre: escapa os caracteres especiais do formato (\, TAB e quebras de linha).
+     */
+    private void escreverTexto(String texto) {
+        if (texto == null) {
+            escreverAscii("\\N"); // NULL no formato do LOAD DATA
+            return;
+        }
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '\\' -> escreverAscii("\\\\");
+                case '\t' -> escreverAscii("\\t");
+                case '\n' -> escreverAscii("\\n");
+                case '\r' -> escreverAscii("\\r");
+                default -> {
+                    if (c < 0x80) {
+                        buffer.write(c);
+                    } else {
+                        int codePoint = texto.codePointAt(i);
+                        buffer.writeBytes(new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8));
+                        i += Character.charCount(codePoint) - 1;
+                    }
+                }
+            }
+        }
+    }
+
+    private void escreverAscii(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            buffer.write(texto.charAt(i));
+        }
+    }
+
+    /**
+     * ByteArrayOutputStream que expõe o array interno, para o InputStream ler sem copiar.
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(64 * 1024);
+        }
+
+        byte[] conteudo() {
+            return buf;
+        }
+    }
+}
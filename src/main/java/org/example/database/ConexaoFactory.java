@@ -1,8 +1,14 @@
 package org.example.database;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.example.dto.MetricasPoolDTO;
+
+import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.function.Consumer;
 
 //Abre/Fecha conexão (Singleton/Factory)
 public class ConexaoFactory {
@@ -12,8 +18,163 @@ public class ConexaoFactory {
     private static final String USUARIO = "root"; //configure o usuario
     private static final String SENHA = ""; //configure a senha
 
+    // Faz o driver juntar o lote em um único INSERT ... VALUES (...), (...), ...
+    private static final String PARAMETRO_REESCREVER_LOTES = "rewriteBatchedStatements=true";
+
+    // Permite o LOAD DATA LOCAL INFILE (o servidor também precisa de local_infile=ON)
+    private static final String PARAMETRO_CARGA_LOCAL = "allowLocalInfile=true";
+
+    // Permite mandar várias consultas separadas por ';' num só comando (painel da tela, DadosDAO.buscarDadosPainel)
+    private static final String PARAMETRO_MULTIPLAS_CONSULTAS = "allowMultiQueries=true";
+
+    // --- CONFIGURAÇÃO DO POOL ---
+    // Pode ser trocada sem recompilar com -Dauditgov.pool.max=20 etc.
+    // Estação do analista: os padrões bastam. Servidor de carga: aumente auditgov.pool.cargaMax
+    // para (número de gravadores da importação + 2).
+    private static final int POOL_MINIMO = Integer.getInteger("auditgov.pool.min", 2);
+    private static final int POOL_MAXIMO = Integer.getInteger("auditgov.pool.max", 10);
+    private static final long POOL_OCIOSIDADE_MS = Long.getLong("auditgov.pool.ociosidadeMs", 300_000L); // Fecha conexões paradas além do mínimo
+    private static final long POOL_ESPERA_MS = Long.getLong("auditgov.pool.esperaMs", 30_000L); // Máximo esperando uma conexão livre
+    private static final long POOL_VAZAMENTO_MS = Long.getLong("auditgov.pool.vazamentoMs", 60_000L); // Avisa conexão emprestada há muito tempo
+
+    // Pool à parte para o trabalho longo (importação, cópia da tabela viagem para a análise, recálculo dos resumos),
+    // que segura a conexão por minutos: sem o aviso de vazamento, que aqui seria sempre falso.
+    // Importação: gravadores + 1 (órgãos e cidades); mais 1 para a cópia da análise.
+    private static final int POOL_CARGA_MAXIMO = Integer.getInteger("auditgov.pool.cargaMax", 6);
+
+    private static final MetricasPool METRICAS = new MetricasPool();
+    private static final MetricasPool METRICAS_CARGA = new MetricasPool();
+    private static volatile boolean poolCargaCriado = false;
+
+    // Recebe cada conexão emprestada pela thread atual (ver observarConexoes)
+    private static final ThreadLocal<Consumer<Connection>> OBSERVADOR_CONEXOES = new ThreadLocal<>();
+
+    // Criado só no primeiro uso (inicialização preguiçosa e thread-safe pela JVM)
+    private static class Pool {
+        static final HikariDataSource DATA_SOURCE = criarPool();
+    }
+
+    private static class PoolCarga {
+        static final HikariDataSource DATA_SOURCE = criarPoolCarga();
+    }
+
+    private static HikariDataSource criarPool() {
+        HikariConfig config = configurarPool("auditgov", METRICAS);
+        config.setMinimumIdle(POOL_MINIMO);
+        config.setMaximumPoolSize(POOL_MAXIMO);
+        config.setLeakDetectionThreshold(POOL_VAZAMENTO_MS); // Consultas da tela: devolvem a conexão em segundos
+        return new HikariDataSource(config);
+    }
+
+    private static HikariDataSource criarPoolCarga() {
+        HikariConfig config = configurarPool("auditgov-carga", METRICAS_CARGA);
+        config.setMinimumIdle(0); // Só abre conexões quando há trabalho longo
+        config.setMaximumPoolSize(POOL_CARGA_MAXIMO);
+        poolCargaCriado = true;
+        return new HikariDataSource(config);
+    }
+
+    private static HikariConfig configurarPool(String nome, MetricasPool metricas) {
+        // A validação no empréstimo fica com o padrão do Hikari (só conexões ociosas há mais de 500 ms);
+        // para mudar, -Dcom.zaxxer.hikari.aliveBypassWindowMs na linha de comando
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(nome);
+        config.setJdbcUrl(URL + "?" + PARAMETRO_REESCREVER_LOTES + "&" + PARAMETRO_CARGA_LOCAL
+                + "&" + PARAMETRO_MULTIPLAS_CONSULTAS);
+        config.setUsername(USUARIO);
+        config.setPassword(SENHA);
+        config.setIdleTimeout(POOL_OCIOSIDADE_MS);
+        config.setConnectionTimeout(POOL_ESPERA_MS);
+        config.setMetricsTrackerFactory(metricas);
+        return config;
+    }
+
+    /**
+     * Empresta uma conexão do pool das consultas curtas (tela). O close() devolve a conexão ao pool em vez de fechá-la.
+     */
     public static Connection getConexao() throws SQLException {
+        Connection conn = Pool.DATA_SOURCE.getConnection();
+        Consumer<Connection> observador = OBSERVADOR_CONEXOES.get();
+        if (observador != null) observador.accept(conn);
+        return conn;
+    }
+
+    /**
+     * Faz o observador receber cada conexão que a thread atual pegar do pool, até ser chamado com null.
+     * Usado pelas consultas da tela para cancelar no banco a consulta que passou do prazo.
+     */
+    public static void observarConexoes(Consumer<Connection> observador) {
+        if (observador == null) {
+            OBSERVADOR_CONEXOES.remove();
+        } else {
+            OBSERVADOR_CONEXOES.set(observador);
+        }
+    }
+
+    /**
+     * Interrompe no servidor a consulta em andamento na conexão (KILL QUERY, por uma conexão à parte).
+     * A conexão continua boa: quem esperava a consulta recebe uma SQLException e a devolve ao pool.
+     * Não faz nada se a conexão já foi devolvida.
+     */
+    public static void cancelarConsultaEmAndamento(Connection conn) throws SQLException {
+        if (conn.isClosed()) return;
+        conn.unwrap(org.mariadb.jdbc.Connection.class).cancelCurrentQuery();
+    }
+
+    /**
+     * DataSource com pool, para quem precisar passar a fonte de conexões adiante.
+     */
+    public static DataSource getDataSource() {
+        return Pool.DATA_SOURCE;
+    }
+
+    /**
+     * Empresta uma conexão do pool do trabalho longo (importação, cópia da tabela viagem, recálculo dos resumos),
+     * que pode ficar emprestada por minutos sem aviso de vazamento.
+     */
+    public static Connection getConexaoLonga() throws SQLException {
+        return PoolCarga.DATA_SOURCE.getConnection();
+    }
+
+    /**
+     * Conexão usada pela importação.
+     * Com reescreverLotes = true (padrão) vem do pool do trabalho longo, que já usa rewriteBatchedStatements.
+     * Com false abre uma conexão avulsa sem a reescrita (útil para comparar o desempenho).
+     */
+    public static Connection getConexaoImportacao(boolean reescreverLotes) throws SQLException {
+        if (reescreverLotes) {
+            return getConexaoLonga();
+        }
         //O DriverManager é quem pega o jar do MariaDB e abre o túnel
-        return DriverManager.getConnection(URL, USUARIO, SENHA);
+        return DriverManager.getConnection(URL + "?" + PARAMETRO_CARGA_LOCAL, USUARIO, SENHA);
+    }
+
+    /**
+     * Tamanho máximo configurado para o pool das consultas curtas.
+     */
+    public static int getTamanhoMaximoPool() {
+        return POOL_MAXIMO;
+    }
+
+    /**
+     * Métricas atuais do pool das consultas curtas (ativas, ociosas, espera por conexão).
+     */
+    public static MetricasPoolDTO getMetricasPool() {
+        return METRICAS.fotografar();
+    }
+
+    /**
+     * Métricas atuais do pool do trabalho longo (o da importação).
+     */
+    public static MetricasPoolDTO getMetricasPoolCarga() {
+        return METRICAS_CARGA.fotografar();
+    }
+
+    /**
+     * Fecha todas as conexões dos pools (ao encerrar a aplicação).
+     */
+    public static void fecharPool() {
+        Pool.DATA_SOURCE.close();
+        if (poolCargaCriado) PoolCarga.DATA_SOURCE.close();
     }
 }
@@ -88,6 +88,162 @@ public class DadosDAO {
         throw new SQLException("Erro ao inserir cidade: " + cidade.getNome() + "/" + cidade.getUf());
     }
 
+    // Máximo de valores por cláusula IN / VALUES nas operações em lote de órgão e cidade
+    private static final int MAXIMO_POR_CONSULTA = 500;
+
+    /**
+     * Busca vários órgãos pelo nome numa única consulta (usa o índice único de nome).
+     * Retorna dados brutos: lista de [id, nome].
+     */
+    public java.util.List<Object[]> buscarOrgaosPorNomes(Connection conn, java.util.List<String> nomes) throws SQLException {
+        java.util.List<Object[]> resultados = new java.util.ArrayList<>();
+        for (int inicio = 0; inicio < nomes.size(); inicio += MAXIMO_POR_CONSULTA) {
+            java.util.List<String> parte = nomes.subList(inicio, Math.min(nomes.size(), inicio + MAXIMO_POR_CONSULTA));
+            String sql = "SELECT id, nome FROM orgao WHERE nome IN (" + marcadores(parte.size(), "?") + ")";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < parte.size(); i++) {
+                    stmt.setString(i + 1, parte.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        resultados.add(new Object[]{rs.getInt("id"), rs.getString("nome")});
+                    }
+                }
+            }
+        }
+        return resultados;
+    }
+
+    /**
+     * Insere vários órgãos com um único INSERT de várias linhas.
+     * Nomes que já existem (índice único) são ignorados.
+     */
+    public void inserirOrgaosIgnorandoExistentes(Connection conn, java.util.List<String> nomes) throws SQLException {
+        for (int inicio = 0; inicio < nomes.size(); inicio += MAXIMO_POR_CONSULTA) {
+            java.util.List<String> parte = nomes.subList(inicio, Math.min(nomes.size(), inicio + MAXIMO_POR_CONSULTA));
+            String sql = "INSERT IGNORE INTO orgao (nome) VALUES " + marcadores(parte.size(), "(?)");
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < parte.size(); i++) {
+                    stmt.setString(i + 1, parte.get(i));
+                }
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Busca as cidades com algum dos nomes informados numa única consulta
+     * (usa o índice único nome + uf). Pode trazer cidades de outras UFs com o mesmo nome;
+     * quem chama filtra.
+     * Retorna dados brutos: lista de [id, nome, uf].
+     */
+    public java.util.List<Object[]> buscarCidadesPorNomes(Connection conn, java.util.List<String> nomes) throws SQLException {
+        java.util.List<Object[]> resultados = new java.util.ArrayList<>();
+        for (int inicio = 0; inicio < nomes.size(); inicio += MAXIMO_POR_CONSULTA) {
+            java.util.List<String> parte = nomes.subList(inicio, Math.min(nomes.size(), inicio + MAXIMO_POR_CONSULTA));
+            String sql = "SELECT id, nome, uf FROM cidade WHERE nome IN (" + marcadores(parte.size(), "?") + ")";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < parte.size(); i++) {
+                    stmt.setString(i + 1, parte.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        resultados.add(new Object[]{rs.getInt("id"), rs.getString("nome"), rs.getString("uf")});
+                    }
+                }
+            }
+        }
+        return resultados;
+    }
+
+    /**
+     * Insere várias cidades com um único INSERT de várias linhas.
+     * Cidades que já existem (índice único nome + uf) são ignoradas.
+     */
+    public void inserirCidadesIgnorandoExistentes(Connection conn, java.util.List<Cidade> cidades) throws SQLException {
+        for (int inicio = 0; inicio < cidades.size(); inicio += MAXIMO_POR_CONSULTA) {
+            java.util.List<Cidade> parte = cidades.subList(inicio, Math.min(cidades.size(), inicio + MAXIMO_POR_CONSULTA));
+            String sql = "INSERT IGNORE INTO cidade (nome, uf) VALUES " + marcadores(parte.size(), "(?, ?)");
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int parametro = 1;
+                for (Cidade cidade : parte) {
+                    stmt.setString(parametro++, cidade.getNome().trim());
+                    stmt.setString(parametro++, cidade.getUf().trim().toUpperCase());
+                }
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Monta "m, m, m" com a quantidade pedida (para cláusulas IN e VALUES).
+     */
+    private static String marcadores(int quantidade, String marcador) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < quantidade; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(marcador);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Recebe cada linha lida por carregarDimensoes().
+     * Para órgãos, uf vem null.
+     */
+    @FunctionalInterface
+    public interface LeitorDimensao {
+        void aceitar(boolean ehOrgao, int id, String nome, String uf);
+    }
+
+    /**
+     * Lê todos os órgãos e cidades numa única consulta, em streaming
+     * (o driver busca as linhas aos poucos, sem montar a tabela inteira na memória).
+     */
+    public void carregarDimensoes(Connection conn, LeitorDimensao leitor) throws SQLException {
+        String sql = "SELECT 'O' AS tipo, id, nome, NULL AS uf FROM orgao " +
+                     "UNION ALL " +
+                     "SELECT 'C' AS tipo, id, nome, uf FROM cidade";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(1000); // Liga o streaming do driver MariaDB
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    leitor.aceitar("O".equals(rs.getString("tipo")), rs.getInt("id"), rs.getString("nome"), rs.getString("uf"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Recebe cada viagem lida por carregarFatosViagens(), já em tipos primitivos.
+     */
+    @FunctionalInterface
+    public interface LeitorFatoViagem {
+        void aceitar(int idOrgao, int idCidade, int diaEpoca, long centavos);
+    }
+
+    /**
+     * Lê as colunas numéricas de todas as viagens numa única consulta, em streaming.
+     * A data vem como dias desde 1970-01-01 e o valor em centavos, calculados pelo banco,
+     * para não criar um Date e um BigDecimal por linha.
+     */
+    public void carregarFatosViagens(Connection conn, LeitorFatoViagem leitor) throws SQLException {
+        String sql = "SELECT fk_orgao, fk_destino, " +
+                     "DATEDIFF(data_inicio, '1970-01-01') AS dia_epoca, " +
+                     "CAST(valor_total * 100 AS SIGNED) AS centavos " +
+                     "FROM viagem";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(1000); // Liga o streaming do driver MariaDB
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    leitor.aceitar(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getLong(4));
+                }
+            }
+        }
+    }
+
     /**
      * @deprecated Use GestaoEntidadesUnicas.salvarOuRecuperarOrgao() em vez disso.
      * Mantido apenas para compatibilidade.
@@ -110,35 +266,468 @@ public class DadosDAO {
         return gestao.salvarOuRecuperarCidade(conn, cidade);
     }
 
+    static final String SQL_INSERIR_VIAGEM =
+            "INSERT INTO viagem (id_processo, data_inicio, valor_total, fk_orgao, fk_destino, hash_conteudo) VALUES (?, ?, ?, ?, ?, ?)";
+
     /**
      * Insere a viagem na tabela fato.
      * Converte a data do Java para SQL e extrai os IDs dos objetos relacionados.
+     * <p>
+     * Prepara um statement novo a cada chamada. Para volumes grandes use abrirLoteViagens().
      */
     public void inserirViagem(Connection conn, Viagem viagem) throws SQLException {
-        String sql = "INSERT INTO viagem (id_processo, data_inicio, valor_total, fk_orgao, fk_destino) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERIR_VIAGEM)) {
+            preencherViagem(stmt, viagem);
 
+            // Executa
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Abre um lote de inserção de viagens que reaproveita o mesmo PreparedStatement
+     * (addBatch/executeBatch). Quem chama é responsável por executar() o último lote e fechar.
+     *
+     * @param tamanhoLote Quantidade de linhas enviadas por executeBatch
+     */
+    public LoteViagens abrirLoteViagens(Connection conn, int tamanhoLote) throws SQLException {
+        return abrirLoteViagens(conn, tamanhoLote,
+                (linha, mensagem) -> System.err.println("Erro na linha " + linha + ": " + mensagem));
+    }
+
+    /**
+     * Igual a abrirLoteViagens(conn, tamanhoLote), mas entrega as linhas descartadas
+     * (número da linha, mensagem) para quem chamou em vez de imprimir no System.err.
+     */
+    public LoteViagens abrirLoteViagens(Connection conn, int tamanhoLote,
+                                        java.util.function.BiConsumer<Integer, String> aoFalhar) throws SQLException {
+        return abrirLoteViagens(conn, tamanhoLote, aoFalhar, null);
+    }
+
+    /**
+     * Igual a abrirLoteViagens(conn, tamanhoLote, aoFalhar), somando as viagens gravadas no resumo
+     * (ver somarResumos()).
+     */
+    public LoteViagens abrirLoteViagens(Connection conn, int tamanhoLote,
+                                        java.util.function.BiConsumer<Integer, String> aoFalhar,
+                                        ResumoViagens resumo) throws SQLException {
+        return new LoteViagens(conn, tamanhoLote, aoFalhar, resumo);
+    }
+
+    /**
+     * Abre um gravador que faz um INSERT por viagem, na hora (mesmo comportamento de inserirViagem).
+     *
+     * @param resumo Recebe as viagens gravadas (pode ser null)
+     */
+    public InsercaoLinhaALinha abrirInsercaoLinhaALinha(Connection conn,
+                                                        java.util.function.BiConsumer<Integer, String> aoFalhar,
+                                                        ResumoViagens resumo) {
+        return new InsercaoLinhaALinha(conn, this, aoFalhar, resumo);
+    }
+
+    /**
+     * Abre uma carga via LOAD DATA LOCAL INFILE: as viagens ficam num buffer em memória
+     * e vão ao banco de uma vez a cada executar().
+     *
+     * @param resumo Recebe as viagens gravadas (pode ser null)
+     */
+    public CargaViagensLoadData abrirCargaLoadData(Connection conn,
+                                                   java.util.function.BiConsumer<Integer, String> aoFalhar,
+                                                   ResumoViagens resumo) {
+        return new CargaViagensLoadData(conn, aoFalhar, resumo);
+    }
+
+    // --- RESUMOS (resumo_orgao, resumo_cidade e resumo_geral) ---
+
+    private static final String ATUALIZACAO_RESUMO =
+            " ON DUPLICATE KEY UPDATE " +
+            "quantidade = quantidade + VALUES(quantidade), " +
+            "valor_total = valor_total + VALUES(valor_total), " +
+            "valor_minimo = LEAST(valor_minimo, VALUES(valor_minimo)), " +
+            "valor_maximo = GREATEST(valor_maximo, VALUES(valor_maximo))";
+
+    /**
+     * Soma os totais acumulados às tabelas de resumo (INSERT ... ON DUPLICATE KEY UPDATE).
+     * Deve ser chamado na mesma transação dos INSERTs das viagens, logo antes do commit,
+     * para que as linhas de resumo fiquem travadas o menor tempo possível.
+     * As linhas são atualizadas sempre na mesma ordem (órgãos e cidades por id, depois o geral).
+     * <p>
+     * Um grupo que descontou valores (ResumoViagens.subtrair) e não tem linha de resumo não é gravado:
+     * o INSERT criaria a linha com quantidade e valor negativos. O resumo fica marcado como inexato
+     * e quem importa refaz os resumos no fim (recalcularResumos()).
+     */
+    public void somarResumos(Connection conn, ResumoViagens resumo) throws SQLException {
+        if (resumo.isVazio()) return;
+        descartarGruposSemResumo(conn, "resumo_orgao", "fk_orgao", resumo.getPorOrgao(), resumo);
+        descartarGruposSemResumo(conn, "resumo_cidade", "fk_cidade", resumo.getPorCidade(), resumo);
+        somarResumoGrupos(conn, "resumo_orgao", "fk_orgao", resumo.getPorOrgao());
+        somarResumoGrupos(conn, "resumo_cidade", "fk_cidade", resumo.getPorCidade());
+
+        if (resumo.getGeral().comRemocao && !existeResumoGeral(conn)) {
+            resumo.marcarInexato();
+            return;
+        }
+
+        String sql = "INSERT INTO resumo_geral (id, quantidade, valor_total, valor_minimo, valor_maximo) " +
+                     "VALUES (1, ?, ?, ?, ?)" + ATUALIZACAO_RESUMO;
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            preencherParcial(stmt, 1, resumo.getGeral());
+            stmt.executeUpdate();
+        }
+    }
 
-            // 1. ID do Processo (Texto)
-            stmt.setString(1, viagem.getIdProcesso());
+    // Tira do resumo os grupos com desconto que não têm linha na tabela (ver somarResumos)
+    private void descartarGruposSemResumo(Connection conn, String tabela, String colunaChave,
+                                          java.util.Map<Integer, ResumoViagens.Parcial> grupos,
+                                          ResumoViagens resumo) throws SQLException {
+        java.util.List<Integer> comRemocao = new java.util.ArrayList<>();
+        grupos.forEach((id, parcial) -> {
+            if (parcial.comRemocao) comRemocao.add(id);
+        });
 
-            // 2. Data (Conversão Obrigatória: LocalDate -> java.sql.Date)
-            stmt.setDate(2, java.sql.Date.valueOf(viagem.getDataInicio()));
+        java.util.Set<Integer> existentes = new java.util.HashSet<>();
+        for (int inicio = 0; inicio < comRemocao.size(); inicio += MAXIMO_POR_CONSULTA) {
+            java.util.List<Integer> parte = comRemocao.subList(inicio, Math.min(comRemocao.size(), inicio + MAXIMO_POR_CONSULTA));
+            String sql = "SELECT " + colunaChave + " FROM " + tabela + " WHERE " + colunaChave
+                         + " IN (" + marcadores(parte.size(), "?") + ")";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < parte.size(); i++) {
+                    stmt.setInt(i + 1, parte.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) existentes.add(rs.getInt(1));
+                }
+            }
+        }
 
-            // 3. Valor Total
-            stmt.setDouble(3, viagem.getValorTotal());
+        for (Integer id : comRemocao) {
+            if (!existentes.contains(id)) {
+                grupos.remove(id);
+                resumo.marcarInexato();
+            }
+        }
+    }
+
+    private boolean existeResumoGeral(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM resumo_geral WHERE id = 1");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next();
+        }
+    }
 
-            // 4. FK Órgão (Pega o ID de dentro do objeto Orgao)
-            stmt.setInt(4, viagem.getOrgao().getId());
+    private void somarResumoGrupos(Connection conn, String tabela, String colunaChave,
+                                   java.util.Map<Integer, ResumoViagens.Parcial> grupos) throws SQLException {
+        java.util.List<java.util.Map.Entry<Integer, ResumoViagens.Parcial>> entradas = new java.util.ArrayList<>(grupos.entrySet());
+        for (int inicio = 0; inicio < entradas.size(); inicio += MAXIMO_POR_CONSULTA) {
+            java.util.List<java.util.Map.Entry<Integer, ResumoViagens.Parcial>> parte =
+                    entradas.subList(inicio, Math.min(entradas.size(), inicio + MAXIMO_POR_CONSULTA));
+            String sql = "INSERT INTO " + tabela + " (" + colunaChave + ", quantidade, valor_total, valor_minimo, valor_maximo) " +
+                         "VALUES " + marcadores(parte.size(), "(?, ?, ?, ?, ?)") + ATUALIZACAO_RESUMO;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int parametro = 1;
+                for (java.util.Map.Entry<Integer, ResumoViagens.Parcial> entrada : parte) {
+                    stmt.setInt(parametro++, entrada.getKey());
+                    parametro = preencherParcial(stmt, parametro, entrada.getValue());
+                }
+                stmt.executeUpdate();
+            }
+        }
+    }
 
-            // 5. FK Destino (Pega o ID de dentro do objeto Cidade)
-            stmt.setInt(5, viagem.getDestino().getId());
+    private static int preencherParcial(PreparedStatement stmt, int parametro, ResumoViagens.Parcial parcial) throws SQLException {
+        stmt.setLong(parametro++, parcial.quantidade);
+        stmt.setBigDecimal(parametro++, parcial.soma);
+        stmt.setBigDecimal(parametro++, parcial.minimo);
+        stmt.setBigDecimal(parametro++, parcial.maximo);
+        return parametro;
+    }
 
-            // Executa
+    /**
+     * Refaz o mínimo e o máximo dos grupos informados (e do resumo geral) a partir da tabela viagem,
+     * e apaga os grupos que ficaram sem viagens. Usado depois de uma importação delta: os valores
+     * antigos das viagens alteradas saem da quantidade e da soma na hora, mas o mínimo e o máximo
+     * só podem ser refeitos consultando as viagens do grupo (pelo índice da chave estrangeira).
+     * Quem chama controla a transação.
+     */
+    public void recalcularExtremosResumos(Connection conn, java.util.Collection<Integer> idsOrgao,
+                                          java.util.Collection<Integer> idsCidade) throws SQLException {
+        recalcularExtremosGrupos(conn, "resumo_orgao", "fk_orgao", "fk_orgao", new java.util.ArrayList<>(idsOrgao));
+        recalcularExtremosGrupos(conn, "resumo_cidade", "fk_cidade", "fk_destino", new java.util.ArrayList<>(idsCidade));
+
+        try (Statement stmt = conn.createStatement()) {
+            // MIN e MAX da tabela inteira saem direto do índice idx_valor_total
+            stmt.executeUpdate("DELETE FROM resumo_geral WHERE quantidade <= 0");
+            stmt.executeUpdate("UPDATE resumo_geral SET " +
+                    "valor_minimo = (SELECT MIN(valor_total) FROM viagem), " +
+                    "valor_maximo = (SELECT MAX(valor_total) FROM viagem) " +
+                    "WHERE id = 1");
+        }
+    }
+
+    private void recalcularExtremosGrupos(Connection conn, String tabela, String colunaChave, String colunaViagem,
+                                          java.util.List<Integer> ids) throws SQLException {
+        for (int inicio = 0; inicio < ids.size(); inicio += MAXIMO_POR_CONSULTA) {
+            java.util.List<Integer> parte = ids.subList(inicio, Math.min(ids.size(), inicio + MAXIMO_POR_CONSULTA));
+            String filtro = colunaChave + " IN (" + marcadores(parte.size(), "?") + ")";
+            String[] comandos = {
+                "DELETE FROM " + tabela + " WHERE quantidade <= 0 AND " + filtro,
+                "UPDATE " + tabela + " r SET " +
+                    "valor_minimo = (SELECT MIN(v.valor_total) FROM viagem v WHERE v." + colunaViagem + " = r." + colunaChave + "), " +
+                    "valor_maximo = (SELECT MAX(v.valor_total) FROM viagem v WHERE v." + colunaViagem + " = r." + colunaChave + ") " +
+                    "WHERE r." + filtro
+            };
+            for (String sql : comandos) {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < parte.size(); i++) {
+                        stmt.setInt(i + 1, parte.get(i));
+                    }
+                    stmt.executeUpdate();
+                }
+            }
+        }
+    }
+
+    /**
+     * Refaz as tabelas de resumo a partir da tabela viagem (varre a tabela inteira).
+     * Usado quando a importação não conseguiu manter os resumos exatos e para preencher
+     * os resumos de um banco que já tinha viagens. Quem chama controla a transação.
+     */
+    public void recalcularResumos(Connection conn) throws SQLException {
+        String[] comandos = {
+            "DELETE FROM resumo_orgao",
+            "DELETE FROM resumo_cidade",
+            "DELETE FROM resumo_geral",
+            "INSERT INTO resumo_orgao (fk_orgao, quantidade, valor_total, valor_minimo, valor_maximo) " +
+                "SELECT fk_orgao, COUNT(*), SUM(valor_total), MIN(valor_total), MAX(valor_total) FROM viagem GROUP BY fk_orgao",
+            "INSERT INTO resumo_cidade (fk_cidade, quantidade, valor_total, valor_minimo, valor_maximo) " +
+                "SELECT fk_destino, COUNT(*), SUM(valor_total), MIN(valor_total), MAX(valor_total) FROM viagem GROUP BY fk_destino",
+            "INSERT INTO resumo_geral (id, quantidade, valor_total, valor_minimo, valor_maximo) " +
+                "SELECT 1, COUNT(*), SUM(valor_total), MIN(valor_total), MAX(valor_total) FROM viagem HAVING COUNT(*) > 0"
+        };
+        try (Statement stmt = conn.createStatement()) {
+            for (String comando : comandos) {
+                stmt.executeUpdate(comando);
+            }
+        }
+    }
+
+    // --- CHECKPOINT DA IMPORTAÇÃO (importacao_checkpoint) ---
+
+    /**
+     * Busca o checkpoint do arquivo pela identificação dele.
+     * Retorna dados brutos: [linhas_confirmadas, concluida, posicao_confirmada (null se desconhecida)],
+     * ou null se o arquivo nunca foi importado.
+     */
+    public Object[] buscarCheckpoint(Connection conn, String hashArquivo) throws SQLException {
+        String sql = "SELECT linhas_confirmadas, concluida, posicao_confirmada FROM importacao_checkpoint WHERE hash_arquivo = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, hashArquivo);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new Object[]{rs.getLong("linhas_confirmadas"), rs.getBoolean("concluida"),
+                            rs.getObject("posicao_confirmada", Long.class)};
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Grava o checkpoint do arquivo. O número de linhas só aumenta (GREATEST), então gravadores
+     * que confirmam fora de ordem não fazem o checkpoint voltar; a posição (bytes logo depois dessas linhas,
+     * negativa = desconhecida, grava NULL) só muda junto com as linhas. Ela é atribuída antes delas porque o
+     * UPDATE vê, nas colunas seguintes, os valores já atualizados.
+     * Chamado na transação das viagens, depois de somarResumos(), para manter a mesma ordem de travas.
+     */
+    public void salvarCheckpoint(Connection conn, String hashArquivo, String nomeArquivo,
+                                 long linhasConfirmadas, long posicaoConfirmada, boolean concluida) throws SQLException {
+        String sql = "INSERT INTO importacao_checkpoint (hash_arquivo, nome_arquivo, linhas_confirmadas, posicao_confirmada, concluida) " +
+                     "VALUES (?, ?, ?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE " +
+                     "nome_arquivo = VALUES(nome_arquivo), " +
+                     "posicao_confirmada = IF(VALUES(linhas_confirmadas) > linhas_confirmadas, " +
+                     "VALUES(posicao_confirmada), posicao_confirmada), " +
+                     "linhas_confirmadas = GREATEST(linhas_confirmadas, VALUES(linhas_confirmadas)), " +
+                     "concluida = concluida OR VALUES(concluida)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, hashArquivo);
+            stmt.setString(2, nomeArquivo);
+            stmt.setLong(3, linhasConfirmadas);
+            if (posicaoConfirmada >= 0) {
+                stmt.setLong(4, posicaoConfirmada);
+            } else {
+                stmt.setNull(4, Types.BIGINT);
+            }
+            stmt.setBoolean(5, concluida);
             stmt.executeUpdate();
         }
     }
 
+    /**
+     * Apaga o checkpoint do arquivo (para importá-lo de novo desde o começo).
+     */
+    public void apagarCheckpoint(Connection conn, String hashArquivo) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM importacao_checkpoint WHERE hash_arquivo = ?")) {
+            stmt.setString(1, hashArquivo);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Busca as impressões digitais das viagens que já estão no banco, entre os processos informados
+     * (consultas IN pela chave primária). Usado pela importação delta para separar as viagens
+     * novas, as alteradas e as iguais.
+     * Retorna dados brutos: lista de [id_processo, hash_conteudo (null em linhas antigas), fk_orgao, fk_destino, valor_total].
+     */
+    public java.util.List<Object[]> buscarImpressoesViagens(Connection conn, java.util.List<String> idsProcesso) throws SQLException {
+        java.util.List<Object[]> resultados = new java.util.ArrayList<>();
+        for (int inicio = 0; inicio < idsProcesso.size(); inicio += MAXIMO_POR_CONSULTA) {
+            java.util.List<String> parte = idsProcesso.subList(inicio, Math.min(idsProcesso.size(), inicio + MAXIMO_POR_CONSULTA));
+            String sql = "SELECT id_processo, hash_conteudo, fk_orgao, fk_destino, valor_total FROM viagem " +
+                         "WHERE id_processo IN (" + marcadores(parte.size(), "?") + ")";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < parte.size(); i++) {
+                    stmt.setString(i + 1, parte.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        long hash = rs.getLong("hash_conteudo");
+                        resultados.add(new Object[]{
+                            rs.getString("id_processo"),
+                            rs.wasNull() ? null : hash,
+                            rs.getInt("fk_orgao"),
+                            rs.getInt("fk_destino"),
+                            rs.getBigDecimal("valor_total")
+                        });
+                    }
+                }
+            }
+        }
+        return resultados;
+    }
+
+    /**
+     * Regrava as viagens alteradas (pelo id_processo) num único lote de UPDATEs.
+     * Quem chama controla a transação e ajusta os resumos.
+     */
+    public void atualizarViagens(Connection conn, java.util.List<Viagem> viagens) throws SQLException {
+        if (viagens.isEmpty()) return;
+        String sql = "UPDATE viagem SET data_inicio = ?, valor_total = ?, fk_orgao = ?, fk_destino = ?, hash_conteudo = ? " +
+                     "WHERE id_processo = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Viagem viagem : viagens) {
+                stmt.setDate(1, java.sql.Date.valueOf(viagem.getDataInicio()));
+                stmt.setDouble(2, viagem.getValorTotal());
+                stmt.setInt(3, viagem.getOrgao().getId());
+                stmt.setInt(4, viagem.getDestino().getId());
+                if (viagem.getHashConteudo() != null) {
+                    stmt.setLong(5, viagem.getHashConteudo());
+                } else {
+                    stmt.setNull(5, Types.BIGINT);
+                }
+                stmt.setString(6, viagem.getIdProcesso());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Verifica se há alguma viagem no banco (lê uma linha do índice, sem contar a tabela).
+     */
+    public boolean existeViagem(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT EXISTS (SELECT 1 FROM viagem) AS existe");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() && rs.getBoolean("existe");
+        }
+    }
+
+    /**
+     * Dos processos informados, retorna os que já estão na tabela viagem
+     * (consultas IN pela chave primária, de MAXIMO_POR_CONSULTA em MAXIMO_POR_CONSULTA).
+     */
+    public java.util.List<String> buscarProcessosExistentes(Connection conn, java.util.List<String> idsProcesso) throws SQLException {
+        java.util.List<String> existentes = new java.util.ArrayList<>();
+        for (int inicio = 0; inicio < idsProcesso.size(); inicio += MAXIMO_POR_CONSULTA) {
+            java.util.List<String> parte = idsProcesso.subList(inicio, Math.min(idsProcesso.size(), inicio + MAXIMO_POR_CONSULTA));
+            String sql = "SELECT id_processo FROM viagem WHERE id_processo IN (" + marcadores(parte.size(), "?") + ")";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < parte.size(); i++) {
+                    stmt.setString(i + 1, parte.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        existentes.add(rs.getString("id_processo"));
+                    }
+                }
+            }
+        }
+        return existentes;
+    }
+
+    /**
+     * Preenche os parâmetros do INSERT da viagem (mesma ordem de SQL_INSERIR_VIAGEM).
+     */
+    static void preencherViagem(PreparedStatement stmt, Viagem viagem) throws SQLException {
+        // 1. ID do Processo (Texto)
+        stmt.setString(1, viagem.getIdProcesso());
+
+        // 2. Data (Conversão Obrigatória: LocalDate -> java.sql.Date)
+        stmt.setDate(2, java.sql.Date.valueOf(viagem.getDataInicio()));
+
+        // 3. Valor Total
+        stmt.setDouble(3, viagem.getValorTotal());
+
+        // 4. FK Órgão (Pega o ID de dentro do objeto Orgao)
+        stmt.setInt(4, viagem.getOrgao().getId());
+
+        // 5. FK Destino (Pega o ID de dentro do objeto Cidade)
+        stmt.setInt(5, viagem.getDestino().getId());
+
+        // 6. Impressão digital do conteúdo (para a importação delta)
+        if (viagem.getHashConteudo() != null) {
+            stmt.setLong(6, viagem.getHashConteudo());
+        } else {
+            stmt.setNull(6, Types.BIGINT);
+        }
+    }
+
+    // Viagens com órgão e cidade; quem usa completa com WHERE / ORDER BY / LIMIT
+    private static final String SQL_SELECIONAR_VIAGENS =
+            "SELECT v.id_processo, v.data_inicio, v.valor_total, " +
+            "o.id as orgao_id, o.nome as orgao_nome, " +
+            "c.id as cidade_id, c.nome as cidade_nome, c.uf " +
+            "FROM viagem v " +
+            "INNER JOIN orgao o ON v.fk_orgao = o.id " +
+            "INNER JOIN cidade c ON v.fk_destino = c.id ";
+
+    private static final String SQL_ORDEM_CURSOR =
+            "ORDER BY v.data_inicio DESC, v.id_processo DESC " +
+            "LIMIT ?";
+
+    private static final String SQL_ESTATISTICAS =
+            "SELECT " +
+            "quantidade as total_viagens, " +
+            "valor_total, " +
+            "valor_total / NULLIF(quantidade, 0) as valor_medio, " +
+            "valor_minimo, " +
+            "valor_maximo " +
+            "FROM resumo_geral WHERE id = 1";
+
+    private static final String SQL_MAIORES_GASTADORES =
+            "SELECT o.nome as nome_orgao, r.valor_total " +
+            "FROM resumo_orgao r " +
+            "INNER JOIN orgao o ON r.fk_orgao = o.id " +
+            "ORDER BY r.valor_total DESC " +
+            "LIMIT ?";
+
+    private static final String SQL_DESTINOS_FREQUENTES =
+            "SELECT c.nome as nome_cidade, c.uf, r.quantidade " +
+            "FROM resumo_cidade r " +
+            "INNER JOIN cidade c ON r.fk_cidade = c.id " +
+            "ORDER BY r.quantidade DESC " +
+            "LIMIT ?";
+
     /**
      * Busca viagens com informações de órgão e cidade.
      * O DAO aceita ordenação como parâmetro, mas não decide qual ordenação usar.
@@ -147,13 +736,7 @@ public class DadosDAO {
      * @param orderBy Cláusula ORDER BY (ex: "v.data_inicio DESC"). Pode ser null para sem ordenação.
      */
     public java.util.List<Viagem> buscarViagens(Connection conn, String orderBy, int limite, int offset) throws SQLException {
-        java.util.List<Viagem> viagens = new java.util.ArrayList<>();
-        String sql = "SELECT v.id_processo, v.data_inicio, v.valor_total, " +
-                     "o.id as orgao_id, o.nome as orgao_nome, " +
-                     "c.id as cidade_id, c.nome as cidade_nome, c.uf " +
-                     "FROM viagem v " +
-                     "INNER JOIN orgao o ON v.fk_orgao = o.id " +
-                     "INNER JOIN cidade c ON v.fk_destino = c.id " +
+        String sql = SQL_SELECIONAR_VIAGENS +
                      (orderBy != null && !orderBy.isEmpty() ? "ORDER BY " + orderBy + " " : "") +
                      "LIMIT ? OFFSET ?";
 
@@ -161,29 +744,108 @@ public class DadosDAO {
             stmt.setInt(1, limite);
             stmt.setInt(2, offset);
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    // Construção de objetos de domínio - responsabilidade do DAO
-                    // (padrão comum em DAOs, desde que não contenha lógica de negócio)
-                    Orgao orgao = new Orgao(rs.getString("orgao_nome"));
-                    orgao.setId(rs.getInt("orgao_id"));
+                return lerViagens(rs);
+            }
+        }
+    }
 
-                    Cidade cidade = new Cidade(rs.getString("cidade_nome"), rs.getString("uf"));
-                    cidade.setId(rs.getInt("cidade_id"));
+    /**
+     * Busca a página de viagens que vem logo depois do cursor, na ordem
+     * (data_inicio DESC, id_processo DESC). Paginação por chave (keyset): o banco desce direto
+     * no índice idx_viagem_data_processo até o cursor, então a página N custa o mesmo que a 1,
+     * ao contrário do OFFSET, que lê e descarta todas as linhas anteriores.
+     *
+     * @param dataInicio Data da última viagem da página anterior (null para a primeira página)
+     * @param idProcesso Processo da última viagem da página anterior (null para a primeira página)
+     */
+    public java.util.List<Viagem> buscarViagensAposCursor(Connection conn, java.time.LocalDate dataInicio,
+                                                          String idProcesso, int limite) throws SQLException {
+        boolean primeiraPagina = dataInicio == null || idProcesso == null;
+        String sql = SQL_SELECIONAR_VIAGENS +
+                     (primeiraPagina ? "" :
+                     "WHERE v.data_inicio < ? OR (v.data_inicio = ? AND v.id_processo < ?) ") +
+                     SQL_ORDEM_CURSOR;
 
-                    Viagem viagem = new Viagem(
-                            rs.getString("id_processo"),
-                            rs.getDate("data_inicio").toLocalDate(),
-                            rs.getDouble("valor_total"),
-                            orgao,
-                            cidade
-                    );
-                    viagens.add(viagem);
-                }
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int parametro = 1;
+            if (!primeiraPagina) {
+                java.sql.Date data = java.sql.Date.valueOf(dataInicio);
+                stmt.setDate(parametro++, data);
+                stmt.setDate(parametro++, data);
+                stmt.setString(parametro++, idProcesso);
+            }
+            stmt.setInt(parametro, limite);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return lerViagens(rs);
             }
         }
+    }
+
+    /**
+     * Quantidade de viagens por data de início, da mais recente para a mais antiga.
+     * Retorna dados brutos: lista de [data_inicio (LocalDate), quantidade (Long)].
+     * <p>
+     * Só lê o índice idx_viagem_data_processo, na ordem dele (sem ordenar), mas lê o índice inteiro:
+     * quem chama deve guardar o resultado enquanto os dados não mudarem.
+     */
+    public java.util.List<Object[]> buscarQuantidadePorDia(Connection conn) throws SQLException {
+        String sql = "SELECT data_inicio, COUNT(*) AS quantidade FROM viagem " +
+                     "GROUP BY data_inicio ORDER BY data_inicio DESC";
+        java.util.List<Object[]> dias = new java.util.ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                dias.add(new Object[]{rs.getDate("data_inicio").toLocalDate(), rs.getLong("quantidade")});
+            }
+        }
+        return dias;
+    }
+
+    /**
+     * Processo da viagem na posição informada (0 = a primeira) entre as viagens da data, na ordem
+     * id_processo DESC, ou null se a data tiver menos viagens que isso.
+     * <p>
+     * Desce no índice idx_viagem_data_processo direto até a data e só percorre as entradas dela:
+     * o custo é proporcional às viagens de um dia, não ao tamanho da tabela.
+     */
+    public String buscarProcessoNoDia(Connection conn, java.time.LocalDate dataInicio, long posicao) throws SQLException {
+        String sql = "SELECT id_processo FROM viagem WHERE data_inicio = ? " +
+                     "ORDER BY id_processo DESC LIMIT 1 OFFSET ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setDate(1, java.sql.Date.valueOf(dataInicio));
+            stmt.setLong(2, posicao);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString("id_processo") : null;
+            }
+        }
+    }
+
+    private static java.util.List<Viagem> lerViagens(ResultSet rs) throws SQLException {
+        java.util.List<Viagem> viagens = new java.util.ArrayList<>();
+        while (rs.next()) {
+            viagens.add(montarViagem(rs));
+        }
         return viagens;
     }
 
+    private static Viagem montarViagem(ResultSet rs) throws SQLException {
+        // Construção de objetos de domínio - responsabilidade do DAO
+        // (padrão comum em DAOs, desde que não contenha lógica de negócio)
+        Orgao orgao = new Orgao(rs.getString("orgao_nome"));
+        orgao.setId(rs.getInt("orgao_id"));
+
+        Cidade cidade = new Cidade(rs.getString("cidade_nome"), rs.getString("uf"));
+        cidade.setId(rs.getInt("cidade_id"));
+
+        return new Viagem(
+                rs.getString("id_processo"),
+                rs.getDate("data_inicio").toLocalDate(),
+                rs.getDouble("valor_total"),
+                orgao,
+                cidade
+        );
+    }
+
     /**
      * Conta o total de viagens no banco de dados.
      */
@@ -203,27 +865,25 @@ public class DadosDAO {
      * Retorna um array com os valores calculados pelo banco na ordem:
      * [total_viagens, valor_total, valor_medio, valor_minimo, valor_maximo]
      * A estrutura e nomes dos campos retornados são definidos pela camada de serviço.
+     * <p>
+     * Lê a única linha de resumo_geral, mantida pela importação (tempo constante).
      */
     public Object[] buscarDadosEstatisticas(Connection conn) throws SQLException {
-        String sql = "SELECT " +
-                     "COUNT(*) as total_viagens, " +
-                     "SUM(valor_total) as valor_total, " +
-                     "AVG(valor_total) as valor_medio, " +
-                     "MIN(valor_total) as valor_minimo, " +
-                     "MAX(valor_total) as valor_maximo " +
-                     "FROM viagem";
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql);
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_ESTATISTICAS);
              ResultSet rs = stmt.executeQuery()) {
-            if (rs.next()) {
-                return new Object[]{
-                    rs.getLong("total_viagens"),
-                    rs.getDouble("valor_total"),
-                    rs.getDouble("valor_medio"),
-                    rs.getDouble("valor_minimo"),
-                    rs.getDouble("valor_maximo")
-                };
-            }
+            return lerEstatisticas(rs);
+        }
+    }
+
+    private static Object[] lerEstatisticas(ResultSet rs) throws SQLException {
+        if (rs.next()) {
+            return new Object[]{
+                rs.getLong("total_viagens"),
+                rs.getDouble("valor_total"),
+                rs.getDouble("valor_medio"),
+                rs.getDouble("valor_minimo"),
+                rs.getDouble("valor_maximo")
+            };
         }
         // Retorna valores zerados se não houver dados
         return new Object[]{0L, 0.0, 0.0, 0.0, 0.0};
@@ -234,29 +894,28 @@ public class DadosDAO {
      * Retorna uma lista de arrays [nome_orgao, valor_total] ordenados por valor_total DESC.
      * O DAO não decide quantos retornar - isso é responsabilidade da camada de serviço.
      * 
+     * Lê resumo_orgao pelo índice de valor_total, sem agrupar a tabela viagem.
+     *
      * @param limite Número máximo de órgãos a retornar
      */
     public java.util.List<Object[]> buscarDadosOrgaosMaioresGastadores(Connection conn, int limite) throws SQLException {
-        java.util.List<Object[]> resultados = new java.util.ArrayList<>();
-        String sql = "SELECT o.nome as nome_orgao, SUM(v.valor_total) as valor_total " +
-                     "FROM viagem v " +
-                     "INNER JOIN orgao o ON v.fk_orgao = o.id " +
-                     "GROUP BY o.id, o.nome " +
-                     "ORDER BY valor_total DESC " +
-                     "LIMIT ?";
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_MAIORES_GASTADORES)) {
             stmt.setInt(1, limite);
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    // Retorna dados brutos: [nome_orgao, valor_total]
-                    resultados.add(new Object[]{
-                        rs.getString("nome_orgao"),
-                        rs.getDouble("valor_total")
-                    });
-                }
+                return lerMaioresGastadores(rs);
             }
         }
+    }
+
+    private static java.util.List<Object[]> lerMaioresGastadores(ResultSet rs) throws SQLException {
+        java.util.List<Object[]> resultados = new java.util.ArrayList<>();
+        while (rs.next()) {
+            // Retorna dados brutos: [nome_orgao, valor_total]
+            resultados.add(new Object[]{
+                rs.getString("nome_orgao"),
+                rs.getDouble("valor_total")
+            });
+        }
         return resultados;
     }
 
@@ -265,31 +924,69 @@ public class DadosDAO {
      * Retorna uma lista de arrays [nome_cidade, uf, quantidade] ordenados por quantidade DESC.
      * O DAO não decide quantos retornar - isso é responsabilidade da camada de serviço.
      * 
+     * Lê resumo_cidade pelo índice de quantidade, sem agrupar a tabela viagem.
+     *
      * @param limite Número máximo de destinos a retornar
      */
     public java.util.List<Object[]> buscarDadosDestinosFrequentes(Connection conn, int limite) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_DESTINOS_FREQUENTES)) {
+            stmt.setInt(1, limite);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return lerDestinosFrequentes(rs);
+            }
+        }
+    }
+
+    private static java.util.List<Object[]> lerDestinosFrequentes(ResultSet rs) throws SQLException {
         java.util.List<Object[]> resultados = new java.util.ArrayList<>();
-        String sql = "SELECT c.nome as nome_cidade, c.uf, COUNT(*) as quantidade " +
-                     "FROM viagem v " +
-                     "INNER JOIN cidade c ON v.fk_destino = c.id " +
-                     "GROUP BY c.id, c.nome, c.uf " +
-                     "ORDER BY quantidade DESC " +
-                     "LIMIT ?";
+        while (rs.next()) {
+            // Retorna dados brutos: [nome_cidade, uf, quantidade]
+            resultados.add(new Object[]{
+                rs.getString("nome_cidade"),
+                rs.getString("uf"),
+                rs.getInt("quantidade")
+            });
+        }
+        return resultados;
+    }
+
+    /**
+     * Busca os dados brutos do painel inicial numa única ida ao banco: as quatro consultas vão
+     * juntas no mesmo comando (a conexão do pool usa allowMultiQueries) e voltam como quatro
+     * resultados, lidos em sequência. Retorna um array na ordem:
+     * [estatisticas (como buscarDadosEstatisticas), primeira página de viagens (List&lt;Viagem&gt;),
+     *  maiores gastadores (como buscarDadosOrgaosMaioresGastadores),
+     *  destinos frequentes (como buscarDadosDestinosFrequentes)]
+     * <p>
+     * O total de viagens vem de resumo_geral junto com as estatísticas, sem COUNT(*) na tabela viagem.
+     */
+    public Object[] buscarDadosPainel(Connection conn, int limiteViagens, int limiteOrgaos, int limiteCidades) throws SQLException {
+        String sql = SQL_ESTATISTICAS + ";\n" +
+                     SQL_SELECIONAR_VIAGENS + SQL_ORDEM_CURSOR + ";\n" +
+                     SQL_MAIORES_GASTADORES + ";\n" +
+                     SQL_DESTINOS_FREQUENTES;
 
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, limite);
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    // Retorna dados brutos: [nome_cidade, uf, quantidade]
-                    resultados.add(new Object[]{
-                        rs.getString("nome_cidade"),
-                        rs.getString("uf"),
-                        rs.getInt("quantidade")
-                    });
+            stmt.setInt(1, limiteViagens);
+            stmt.setInt(2, limiteOrgaos);
+            stmt.setInt(3, limiteCidades);
+
+            Object[] painel = new Object[4];
+            boolean temResultado = stmt.execute();
+            for (int i = 0; i < painel.length; i++) {
+                if (!temResultado) throw new SQLException("O painel esperava 4 resultados e recebeu " + i);
+                try (ResultSet rs = stmt.getResultSet()) {
+                    painel[i] = switch (i) {
+                        case 0 -> lerEstatisticas(rs);
+                        case 1 -> lerViagens(rs);
+                        case 2 -> lerMaioresGastadores(rs);
+                        default -> lerDestinosFrequentes(rs);
+                    };
                 }
+                temResultado = stmt.getMoreResults();
             }
+            return painel;
         }
-        return resultados;
     }
 }
 
@@ -0,0 +1,39 @@
+package org.example.database;
+
+import org.example.model.Viagem;
+
+import java.sql.SQLException;
+
+/**
+ * Forma de gravar viagens na tabela fato usada pela importação.
+ * Implementações: LoteViagens (addBatch/executeBatch), InsercaoLinhaALinha (um INSERT por linha)
+ * e CargaViagensLoadData (LOAD DATA LOCAL INFILE). Crie pelo DadosDAO.
+ * <p>
+ * Nenhuma implementação dá commit: quem chama executar() e depois commit() decide o tamanho da transação.
+ * <p>
+ * Se criada com um ResumoViagens, a implementação soma nele cada viagem que de fato entrou
+ * no banco, para que os resumos sejam atualizados na mesma transação.
+ */
+public interface GravadorViagens extends AutoCloseable {
+
+    /**
+     * Adiciona a viagem. Dependendo da implementação ela pode ir ao banco na hora ou só no executar().
+     *
+     * @param linha Número da linha do arquivo (usado apenas nas mensagens de erro)
+     */
+    void adicionar(Viagem viagem, int linha) throws SQLException;
+
+    /**
+     * Envia ao banco o que estiver pendente (sem dar commit).
+     * Retorna quantas linhas foram gravadas desde a última chamada de executar().
+     */
+    int executar() throws SQLException;
+
+    /**
+     * Total de linhas descartadas por erro desde a criação.
+     */
+    long getTotalFalhas();
+
+    @Override
+    void close() throws SQLException;
+}
@@ -0,0 +1,61 @@
+package org.example.database;
+
+import org.example.model.Viagem;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.BiConsumer;
+
+/**
+ * Grava cada viagem com o seu próprio INSERT, na hora (DadosDAO.inserirViagem).
+ * É o modo mais lento; existe para comparação e para depurar linhas problemáticas.
+ */
+public class InsercaoLinhaALinha implements GravadorViagens {
+
+    private final Connection conn;
+    private final DadosDAO dao;
+    private final BiConsumer<Integer, String> aoFalhar;
+    private final ResumoViagens resumo; // Pode ser null
+
+    private int gravadasDesdeExecutar = 0;
+    private long totalFalhas = 0;
+
+    InsercaoLinhaALinha(Connection conn, DadosDAO dao, BiConsumer<Integer, String> aoFalhar, ResumoViagens resumo) {
+        this.conn = conn;
+        this.dao = dao;
+        this.aoFalhar = aoFalhar;
+        this.resumo = resumo;
+    }
+
+    @Override
+    public void adicionar(Viagem viagem, int linha) {
+        try {
+            dao.inserirViagem(conn, viagem);
+            gravadasDesdeExecutar++;
+            if (resumo != null) resumo.somar(viagem);
+        } catch (SQLException e) {
+            totalFalhas++;
+            aoFalhar.accept(linha, e.getMessage());
+        }
+    }
+
+    /**
+     * Nada fica pendente; só devolve quantas linhas foram gravadas desde a última chamada.
+     */
+    @Override
+    public int executar() {
+        int gravadas = gravadasDesdeExecutar;
+        gravadasDesdeExecutar = 0;
+        return gravadas;
+    }
+
+    @Override
+    public long getTotalFalhas() {
+        return totalFalhas;
+    }
+
+    @Override
+    public void close() {
+        // Não há statement aberto
+    }
+}
@@ -0,0 +1,160 @@
+package org.example.database;
+
+import org.example.model.Viagem;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Escrita em lote da tabela fato (viagem).
+ * Reaproveita um único PreparedStatement e acumula as linhas com addBatch,
+ * enviando tudo com executeBatch quando o lote enche.
+ * <p>
+ * Se um lote falhar (ex: uma linha com valor inválido), o lote é desfeito até o
+ * savepoint e as linhas são reenviadas uma a uma, descartando só as que falharem.
+ * Assim o comportamento continua igual ao da importação linha a linha.
+ * <p>
+ * Use DadosDAO.abrirLoteViagens() para criar.
+ */
+public class LoteViagens implements GravadorViagens {
+
+    private final Connection conn;
+    private final PreparedStatement stmt;
+    private final int tamanhoLote;
+
+    // Linhas pendentes no lote atual (necessárias para reenviar em caso de erro)
+    private final List<Viagem> pendentes;
+    private final List<Integer> linhasPendentes;
+
+    // Recebe (linha, mensagem) de cada linha descartada
+    private final BiConsumer<Integer, String> aoFalhar;
+
+    // Totais das linhas gravadas (pode ser null)
+    private final ResumoViagens resumo;
+
+    private long totalGravadas = 0;
+    private long totalFalhas = 0;
+
+    // Gravadas por envios automáticos (lote cheio) e ainda não informadas por executar()
+    private int gravadasNaoInformadas = 0;
+
+    LoteViagens(Connection conn, int tamanhoLote, BiConsumer<Integer, String> aoFalhar,
+                ResumoViagens resumo) throws SQLException {
+        if (tamanhoLote < 1) {
+            throw new IllegalArgumentException("Tamanho do lote deve ser maior que zero: " + tamanhoLote);
+        }
+        this.conn = conn;
+        this.stmt = conn.prepareStatement(DadosDAO.SQL_INSERIR_VIAGEM);
+        this.tamanhoLote = tamanhoLote;
+        this.aoFalhar = aoFalhar;
+        this.resumo = resumo;
+        this.pendentes = new ArrayList<>(tamanhoLote);
+        this.linhasPendentes = new ArrayList<>(tamanhoLote);
+    }
+
+    /**
+     * Adiciona a viagem ao lote. Quando o lote atinge o tamanho configurado,
+     * ele é enviado ao banco automaticamente.
+     *
+     * @param linha Número da linha do arquivo (usado apenas nas mensagens de erro)
+     */
+    @Override
+    public void adicionar(Viagem viagem, int linha) throws SQLException {
+        DadosDAO.preencherViagem(stmt, viagem);
+        stmt.addBatch();
+        pendentes.add(viagem);
+        linhasPendentes.add(linha);
+
+        if (pendentes.size() >= tamanhoLote) {
+            enviar();
+        }
+    }
+
+    /**
+     * Envia as linhas pendentes ao banco (sem dar commit).
+     * Retorna quantas linhas foram gravadas desde a última chamada, incluindo os lotes
+     * que foram enviados automaticamente ao encher.
+     */
+    @Override
+    public int executar() throws SQLException {
+        enviar();
+        int gravadas = gravadasNaoInformadas;
+        gravadasNaoInformadas = 0;
+        return gravadas;
+    }
+
+    private void enviar() throws SQLException {
+        if (pendentes.isEmpty()) return;
+
+        Savepoint savepoint = conn.getAutoCommit() ? null : conn.setSavepoint();
+        int gravadas;
+        try {
+            stmt.executeBatch();
+            gravadas = pendentes.size();
+            if (resumo != null) pendentes.forEach(resumo::somar);
+        } catch (BatchUpdateException e) {
+            // Desfaz o lote inteiro e reenvia linha a linha para isolar as linhas ruins
+            stmt.clearBatch();
+            if (savepoint != null) conn.rollback(savepoint);
+            gravadas = reenviarLinhaALinha();
+        } finally {
+            if (savepoint != null) {
+                try {
+                    conn.releaseSavepoint(savepoint);
+                } catch (SQLException ignorada) {
+                    // O savepoint já foi liberado pelo rollback
+                }
+            }
+        }
+
+        totalGravadas += gravadas;
+        gravadasNaoInformadas += gravadas;
+        pendentes.clear();
+        linhasPendentes.clear();
+    }
+
+    private int reenviarLinhaALinha() throws SQLException {
+        int gravadas = 0;
+        for (int i = 0; i < pendentes.size(); i++) {
+            try {
+                DadosDAO.preencherViagem(stmt, pendentes.get(i));
+                stmt.executeUpdate();
+                gravadas++;
+                if (resumo != null) resumo.somar(pendentes.get(i));
+            } catch (SQLException e) {
+                totalFalhas++;
+                aoFalhar.accept(linhasPendentes.get(i), e.getMessage());
+            }
+        }
+        return gravadas;
+    }
+
+    /**
+     * Total de linhas gravadas desde a criação do lote.
+     */
+    public long getTotalGravadas() {
+        return totalGravadas;
+    }
+
+    /**
+     * Total de linhas descartadas por erro desde a criação do lote.
+     */
+    @Override
+    public long getTotalFalhas() {
+        return totalFalhas;
+    }
+
+    /**
+     * Fecha o statement. Linhas pendentes que não foram enviadas com executar() são descartadas.
+     */
+    @Override
+    public void close() throws SQLException {
+        stmt.close();
+    }
+}
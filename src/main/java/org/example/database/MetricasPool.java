@@ -0,0 +1,63 @@
+package org.example.database;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.example.dto.MetricasPoolDTO;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coleta as métricas do pool de conexões (HikariCP).
+ * O Hikari chama recordConnectionAcquiredNanos a cada getConnection();
+ * daqui saem o tempo médio e máximo de espera por uma conexão.
+ */
+class MetricasPool implements MetricsTrackerFactory, IMetricsTracker {
+
+    private final LongAdder emprestimos = new LongAdder();
+    private final LongAdder esperaTotalNanos = new LongAdder();
+    private final LongAccumulator esperaMaximaNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder timeouts = new LongAdder();
+
+    private volatile PoolStats estatisticas;
+
+    @Override
+    public IMetricsTracker create(String nomePool, PoolStats estatisticas) {
+        this.estatisticas = estatisticas;
+        return this;
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long nanos) {
+        emprestimos.increment();
+        esperaTotalNanos.add(nanos);
+        esperaMaximaNanos.accumulate(nanos);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        timeouts.increment();
+    }
+
+    MetricasPoolDTO fotografar() {
+        PoolStats stats = estatisticas;
+        long total = emprestimos.sum();
+        double mediaMs = total == 0 ? 0.0 : esperaTotalNanos.sum() / (double) total / 1_000_000.0;
+        double maximaMs = esperaMaximaNanos.get() / 1_000_000.0;
+
+        if (stats == null) {
+            return new MetricasPoolDTO(0, 0, 0, 0, total, timeouts.sum(), mediaMs, maximaMs);
+        }
+        return new MetricasPoolDTO(
+                stats.getActiveConnections(),
+                stats.getIdleConnections(),
+                stats.getTotalConnections(),
+                stats.getPendingThreads(),
+                total,
+                timeouts.sum(),
+                mediaMs,
+                maximaMs
+        );
+    }
+}
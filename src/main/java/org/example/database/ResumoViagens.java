@@ -0,0 +1,148 @@
+package org.example.database;
+
+import org.example.model.Viagem;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Acumula, em memória, os totais das viagens gravadas na transação atual
+ * (por órgão, por cidade e geral), para somá-los às tabelas de resumo
+ * com DadosDAO.somarResumos() antes do commit.
+ * <p>
+ * Cada gravador tem o seu; não é thread-safe.
+ * As chaves ficam ordenadas (TreeMap) para que todos os gravadores travem as linhas
+ * de resumo na mesma ordem e não haja deadlock entre eles.
+ */
+public class ResumoViagens {
+
+    /**
+     * Quantidade, soma, mínimo e máximo de um grupo.
+     */
+    static class Parcial {
+        long quantidade;
+        BigDecimal soma = BigDecimal.ZERO;
+        BigDecimal minimo;
+        BigDecimal maximo;
+
+        // Descontou o valor antigo de alguma viagem: só vale somado a uma linha de resumo que já existe
+        boolean comRemocao;
+
+        void somar(BigDecimal valor) {
+            quantidade++;
+            soma = soma.add(valor);
+            atualizarExtremos(valor);
+        }
+
+        void subtrair(BigDecimal valor) {
+            quantidade--;
+            soma = soma.subtract(valor);
+            comRemocao = true;
+            // O mínimo e o máximo do grupo são refeitos no fim (DadosDAO.recalcularExtremosResumos);
+            // usar o valor aqui só garante que não vão nulos para o banco
+            atualizarExtremos(valor);
+        }
+
+        private void atualizarExtremos(BigDecimal valor) {
+            if (minimo == null || valor.compareTo(minimo) < 0) minimo = valor;
+            if (maximo == null || valor.compareTo(maximo) > 0) maximo = valor;
+        }
+    }
+
+    private final Map<Integer, Parcial> porOrgao = new TreeMap<>();
+    private final Map<Integer, Parcial> porCidade = new TreeMap<>();
+    private final Parcial geral = new Parcial();
+
+    // Algum gravador não soube dizer quais linhas entraram (ex: LOAD DATA com recusas)
+    private boolean inexato = false;
+
+    // Grupos que perderam valores (viagens alteradas na importação delta): mínimo e máximo a refazer
+    private final Set<Integer> orgaosComRemocao = new HashSet<>();
+    private final Set<Integer> cidadesComRemocao = new HashSet<>();
+
+    /**
+     * Conta uma viagem que foi gravada na transação atual.
+     */
+    public void somar(Viagem viagem) {
+        // Mesmo arredondamento da coluna DECIMAL(15,2) da viagem
+        BigDecimal valor = BigDecimal.valueOf(viagem.getValorTotal()).setScale(2, RoundingMode.HALF_UP);
+        porOrgao.computeIfAbsent(viagem.getOrgao().getId(), id -> new Parcial()).somar(valor);
+        porCidade.computeIfAbsent(viagem.getDestino().getId(), id -> new Parcial()).somar(valor);
+        geral.somar(valor);
+    }
+
+    /**
+     * Desconta o valor antigo de uma viagem que foi regravada na transação atual
+     * (a nova versão entra com somar()).
+     * Se o grupo ainda não tiver linha de resumo (ex: banco anterior às tabelas de resumo), o desconto
+     * não é gravado e o resumo fica inexato (ver DadosDAO.somarResumos()).
+     *
+     * @param valor Valor gravado antes, como veio da coluna DECIMAL(15,2)
+     */
+    public void subtrair(int idOrgao, int idCidade, BigDecimal valor) {
+        porOrgao.computeIfAbsent(idOrgao, id -> new Parcial()).subtrair(valor);
+        porCidade.computeIfAbsent(idCidade, id -> new Parcial()).subtrair(valor);
+        geral.subtrair(valor);
+        orgaosComRemocao.add(idOrgao);
+        cidadesComRemocao.add(idCidade);
+    }
+
+    /**
+     * Avisa que parte das linhas gravadas não pôde ser contada; os resumos
+     * precisam ser recalculados a partir da tabela viagem (DadosDAO.recalcularResumos()).
+     */
+    public void marcarInexato() {
+        inexato = true;
+    }
+
+    public boolean isInexato() {
+        return inexato;
+    }
+
+    public boolean isVazio() {
+        return porOrgao.isEmpty(); // Toda viagem somada ou subtraída passa por um órgão
+    }
+
+    /**
+     * Órgãos cujo mínimo e máximo precisam ser refeitos (perderam algum valor com subtrair()).
+     */
+    public Set<Integer> getOrgaosComRemocao() {
+        return orgaosComRemocao;
+    }
+
+    /**
+     * Cidades cujo mínimo e máximo precisam ser refeitos (perderam algum valor com subtrair()).
+     */
+    public Set<Integer> getCidadesComRemocao() {
+        return cidadesComRemocao;
+    }
+
+    /**
+     * Esquece os totais (depois do commit). A marca de inexato e os grupos com remoção continuam.
+     */
+    public void limpar() {
+        porOrgao.clear();
+        porCidade.clear();
+        geral.quantidade = 0;
+        geral.soma = BigDecimal.ZERO;
+        geral.minimo = null;
+        geral.maximo = null;
+        geral.comRemocao = false;
+    }
+
+    Map<Integer, Parcial> getPorOrgao() {
+        return porOrgao;
+    }
+
+    Map<Integer, Parcial> getPorCidade() {
+        return porCidade;
+    }
+
+    Parcial getGeral() {
+        return geral;
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.dto;
+
+import org.example.model.Viagem;
+
+import java.time.LocalDate;
+
+/**
+ * DTO (Data Transfer Object) com a posição da última viagem vista numa página.
+ * Usado na paginação por chave (keyset): a próxima página começa logo depois deste ponto
+ * na ordem (data_inicio DESC, id_processo DESC), sem OFFSET.
+ */
+public class CursorViagemDTO {
+    private final LocalDate dataInicio;
+    private final String idProcesso;
+
+    public CursorViagemDTO(LocalDate dataInicio, String idProcesso) {
+        this.dataInicio = dataInicio;
+        this.idProcesso = idProcesso;
+    }
+
+    /**
+     * Cursor apontando para depois da viagem informada (normalmente a última da página).
+     */
+    public static CursorViagemDTO depoisDe(Viagem viagem) {
+        return new CursorViagemDTO(viagem.getDataInicio(), viagem.getIdProcesso());
+    }
+
+    public LocalDate getDataInicio() {
+        return dataInicio;
+    }
+
+    public String getIdProcesso() {
+        return idProcesso;
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.dto;
+
+import java.time.YearMonth;
+
+/**
+ * DTO (Data Transfer Object) com o filtro de uma análise de viagens (ServicoConsulta.agruparViagens).
+ * Campos null não filtram. Nomes de órgão e UF são comparados já normalizados (como ficam no banco).
+ */
+public class FiltroViagensDTO {
+    private String nomeOrgao;
+    private String uf;
+    private YearMonth mesInicial;
+    private YearMonth mesFinal;
+    private Double valorMinimo;
+    private Double valorMaximo;
+
+    public String getNomeOrgao() {
+        return nomeOrgao;
+    }
+
+    public void setNomeOrgao(String nomeOrgao) {
+        this.nomeOrgao = nomeOrgao;
+    }
+
+    public String getUf() {
+        return uf;
+    }
+
+    public void setUf(String uf) {
+        this.uf = uf;
+    }
+
+    public YearMonth getMesInicial() {
+        return mesInicial;
+    }
+
+    public void setMesInicial(YearMonth mesInicial) {
+        this.mesInicial = mesInicial;
+    }
+
+    public YearMonth getMesFinal() {
+        return mesFinal;
+    }
+
+    public void setMesFinal(YearMonth mesFinal) {
+        this.mesFinal = mesFinal;
+    }
+
+    public Double getValorMinimo() {
+        return valorMinimo;
+    }
+
+    public void setValorMinimo(Double valorMinimo) {
+        this.valorMinimo = valorMinimo;
+    }
+
+    public Double getValorMaximo() {
+        return valorMaximo;
+    }
+
+    public void setValorMaximo(Double valorMaximo) {
+        this.valorMaximo = valorMaximo;
+    }
+}
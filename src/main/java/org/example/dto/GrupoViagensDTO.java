@@ -0,0 +1,51 @@
+package org.example.dto;
+
+/**
+ * DTO (Data Transfer Object) com o resultado de um grupo numa análise de viagens:
+ * a chave do grupo (órgão, cidade, UF ou mês) e os totais das viagens dele.
+ */
+public class GrupoViagensDTO {
+    private String chave;
+    private long quantidade;
+    private double valorTotal;
+    private double valorMinimo;
+    private double valorMaximo;
+
+    public GrupoViagensDTO(String chave, long quantidade, double valorTotal, double valorMinimo, double valorMaximo) {
+        this.chave = chave;
+        this.quantidade = quantidade;
+        this.valorTotal = valorTotal;
+        this.valorMinimo = valorMinimo;
+        this.valorMaximo = valorMaximo;
+    }
+
+    public String getChave() {
+        return chave;
+    }
+
+    public long getQuantidade() {
+        return quantidade;
+    }
+
+    public double getValorTotal() {
+        return valorTotal;
+    }
+
+    public double getValorMedio() {
+        return quantidade == 0 ? 0 : valorTotal / quantidade;
+    }
+
+    public double getValorMinimo() {
+        return valorMinimo;
+    }
+
+    public double getValorMaximo() {
+        return valorMaximo;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d viagens, total %.2f (mín %.2f, máx %.2f)",
+                chave, quantidade, valorTotal, valorMinimo, valorMaximo);
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.dto;
+
+/**
+ * DTO (Data Transfer Object) com uma fotografia do cache de consultas da tela.
+ * Usado para ver se o cache está ajudando (taxa de acerto) e se o tamanho basta (despejos).
+ */
+public class MetricasCacheDTO {
+    private int entradas;
+    private int maximoEntradas;
+    private long acertos;
+    private long faltas;
+    private long despejos;
+    private long invalidacoes;
+    private long versaoDados;
+
+    public MetricasCacheDTO(int entradas, int maximoEntradas, long acertos, long faltas,
+                            long despejos, long invalidacoes, long versaoDados) {
+        this.entradas = entradas;
+        this.maximoEntradas = maximoEntradas;
+        this.acertos = acertos;
+        this.faltas = faltas;
+        this.despejos = despejos;
+        this.invalidacoes = invalidacoes;
+        this.versaoDados = versaoDados;
+    }
+
+    public int getEntradas() {
+        return entradas;
+    }
+
+    public int getMaximoEntradas() {
+        return maximoEntradas;
+    }
+
+    public long getAcertos() {
+        return acertos;
+    }
+
+    public long getFaltas() {
+        return faltas;
+    }
+
+    /**
+     * Resultados removidos por falta de espaço (os menos usados recentemente).
+     */
+    public long getDespejos() {
+        return despejos;
+    }
+
+    /**
+     * Resultados descartados porque uma importação mudou os dados depois deles.
+     */
+    public long getInvalidacoes() {
+        return invalidacoes;
+    }
+
+    public long getVersaoDados() {
+        return versaoDados;
+    }
+
+    /**
+     * Acertos / (acertos + faltas), de 0 a 1 (0 se ainda não houve consultas).
+     */
+    public double getTaxaAcerto() {
+        long total = acertos + faltas;
+        return total == 0 ? 0 : (double) acertos / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Cache [entradas=%d/%d, acertos=%d, faltas=%d, taxa de acerto=%.1f%%, "
+                        + "despejos=%d, invalidações=%d, versão dos dados=%d]",
+                entradas, maximoEntradas, acertos, faltas, getTaxaAcerto() * 100,
+                despejos, invalidacoes, versaoDados);
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.dto;
+
+/**
+ * DTO (Data Transfer Object) com uma fotografia do pool de conexões.
+ * Usado para dimensionar o pool (estação do analista x servidor de carga).
+ */
+public class MetricasPoolDTO {
+    private int conexoesAtivas;
+    private int conexoesOciosas;
+    private int conexoesTotais;
+    private int threadsAguardando;
+    private long emprestimos;
+    private long timeouts;
+    private double tempoMedioEsperaMs;
+    private double tempoMaximoEsperaMs;
+
+    public MetricasPoolDTO(int conexoesAtivas, int conexoesOciosas, int conexoesTotais, int threadsAguardando,
+                           long emprestimos, long timeouts, double tempoMedioEsperaMs, double tempoMaximoEsperaMs) {
+        this.conexoesAtivas = conexoesAtivas;
+        this.conexoesOciosas = conexoesOciosas;
+        this.conexoesTotais = conexoesTotais;
+        this.threadsAguardando = threadsAguardando;
+        this.emprestimos = emprestimos;
+        this.timeouts = timeouts;
+        this.tempoMedioEsperaMs = tempoMedioEsperaMs;
+        this.tempoMaximoEsperaMs = tempoMaximoEsperaMs;
+    }
+
+    public int getConexoesAtivas() {
+        return conexoesAtivas;
+    }
+
+    public int getConexoesOciosas() {
+        return conexoesOciosas;
+    }
+
+    public int getConexoesTotais() {
+        return conexoesTotais;
+    }
+
+    public int getThreadsAguardando() {
+        return threadsAguardando;
+    }
+
+    public long getEmprestimos() {
+        return emprestimos;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public double getTempoMedioEsperaMs() {
+        return tempoMedioEsperaMs;
+    }
+
+    public double getTempoMaximoEsperaMs() {
+        return tempoMaximoEsperaMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Pool [ativas=%d, ociosas=%d, total=%d, aguardando=%d, empréstimos=%d, timeouts=%d, "
+                        + "espera média=%.2fms, espera máxima=%.2fms]",
+                conexoesAtivas, conexoesOciosas, conexoesTotais, threadsAguardando,
+                emprestimos, timeouts, tempoMedioEsperaMs, tempoMaximoEsperaMs);
+    }
+}
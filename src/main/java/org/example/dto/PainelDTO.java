@@ -0,0 +1,52 @@
+package org.example.dto;
+
+import org.example.model.Viagem;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO com tudo o que a tela mostra ao abrir (e depois de cada importação):
+ * estatísticas gerais, primeira página de viagens e os dois relatórios.
+ * Montado a partir de uma única consulta ao banco (ServicoConsulta.buscarPainel).
+ */
+public class PainelDTO {
+    private final Map<String, Object> estatisticas;
+    private final List<Viagem> primeiraPagina;
+    private final List<OrgaoGastadorDTO> maioresGastadores;
+    private final List<DestinoFrequenteDTO> destinosFrequentes;
+
+    public PainelDTO(Map<String, Object> estatisticas, List<Viagem> primeiraPagina,
+                     List<OrgaoGastadorDTO> maioresGastadores, List<DestinoFrequenteDTO> destinosFrequentes) {
+        this.estatisticas = estatisticas;
+        this.primeiraPagina = primeiraPagina;
+        this.maioresGastadores = maioresGastadores;
+        this.destinosFrequentes = destinosFrequentes;
+    }
+
+    /**
+     * Mesmas chaves de ServicoConsulta.buscarEstatisticas() (totalViagens, valorTotal, ...).
+     */
+    public Map<String, Object> getEstatisticas() {
+        return estatisticas;
+    }
+
+    /**
+     * Total de viagens (o mesmo valor de getEstatisticas().get("totalViagens")).
+     */
+    public long getTotalViagens() {
+        return ((Number) estatisticas.get("totalViagens")).longValue();
+    }
+
+    public List<Viagem> getPrimeiraPagina() {
+        return primeiraPagina;
+    }
+
+    public List<OrgaoGastadorDTO> getMaioresGastadores() {
+        return maioresGastadores;
+    }
+
+    public List<DestinoFrequenteDTO> getDestinosFrequentes() {
+        return destinosFrequentes;
+    }
+}
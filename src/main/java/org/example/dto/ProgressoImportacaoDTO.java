@@ -0,0 +1,103 @@
+package org.example.dto;
+
+/**
+ * DTO (Data Transfer Object) com uma fotografia do andamento de uma importação.
+ * Entregue ao OuvinteProgressoImportacao configurado na importação.
+ * <p>
+ * Tamanhos desconhecidos (ex: entrada de ZIP sem tamanho no diretório) vêm como -1.
+ */
+public class ProgressoImportacaoDTO {
+    private long bytesLidos;
+    private long bytesTotais;
+    private long linhasLidas;
+    private long linhasRejeitadas;
+    private long linhasConfirmadas;
+    private double segundosDecorridos;
+    private double linhasPorSegundo;
+    private double segundosRestantes;
+    private boolean concluida;
+
+    public ProgressoImportacaoDTO(long bytesLidos, long bytesTotais, long linhasLidas, long linhasRejeitadas,
+                                  long linhasConfirmadas, double segundosDecorridos, double linhasPorSegundo,
+                                  double segundosRestantes, boolean concluida) {
+        this.bytesLidos = bytesLidos;
+        this.bytesTotais = bytesTotais;
+        this.linhasLidas = linhasLidas;
+        this.linhasRejeitadas = linhasRejeitadas;
+        this.linhasConfirmadas = linhasConfirmadas;
+        this.segundosDecorridos = segundosDecorridos;
+        this.linhasPorSegundo = linhasPorSegundo;
+        this.segundosRestantes = segundosRestantes;
+        this.concluida = concluida;
+    }
+
+    /**
+     * Bytes do arquivo já lidos (no ZIP, bytes já descompactados da entrada de viagens).
+     */
+    public long getBytesLidos() {
+        return bytesLidos;
+    }
+
+    public long getBytesTotais() {
+        return bytesTotais;
+    }
+
+    /**
+     * Linhas do CSV lidas e entregues para a limpeza.
+     */
+    public long getLinhasLidas() {
+        return linhasLidas;
+    }
+
+    /**
+     * Linhas descartadas por erro (na limpeza ou na gravação).
+     */
+    public long getLinhasRejeitadas() {
+        return linhasRejeitadas;
+    }
+
+    /**
+     * Viagens gravadas e confirmadas (commit) no banco.
+     */
+    public long getLinhasConfirmadas() {
+        return linhasConfirmadas;
+    }
+
+    public double getSegundosDecorridos() {
+        return segundosDecorridos;
+    }
+
+    /**
+     * Viagens confirmadas por segundo, desde o início da importação.
+     */
+    public double getLinhasPorSegundo() {
+        return linhasPorSegundo;
+    }
+
+    /**
+     * Estimativa do tempo que falta, pelo ritmo de leitura do arquivo (-1 se não der para estimar).
+     */
+    public double getSegundosRestantes() {
+        return segundosRestantes;
+    }
+
+    public boolean isConcluida() {
+        return concluida;
+    }
+
+    /**
+     * Percentual do arquivo já lido (0 a 100), ou -1 se o tamanho não é conhecido.
+     */
+    public int getPercentual() {
+        if (bytesTotais <= 0) return -1;
+        return (int) Math.min(100, bytesLidos * 100 / bytesTotais);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Progresso [%s, lidas=%d, rejeitadas=%d, confirmadas=%d, %.0f linhas/s, restam %s]",
+                getPercentual() >= 0 ? getPercentual() + "%" : bytesLidos + " bytes",
+                linhasLidas, linhasRejeitadas, linhasConfirmadas, linhasPorSegundo,
+                segundosRestantes >= 0 ? String.format("%.0fs", segundosRestantes) : "?");
+    }
+}
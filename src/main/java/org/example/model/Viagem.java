@@ -9,6 +9,7 @@ public class Viagem {
     private double valorTotal;
     private Orgao orgao;
     private Cidade destino;
+    private Long hashConteudo; // Impressão digital do conteúdo, para a importação delta (pode ser null)
 
     public Viagem() {
     }
@@ -63,6 +64,14 @@ public class Viagem {
         this.destino = destino;
     }
 
+    public Long getHashConteudo() {
+        return hashConteudo;
+    }
+
+    public void setHashConteudo(Long hashConteudo) {
+        this.hashConteudo = hashConteudo;
+    }
+
     @Override
     public String toString() {
         return "Viagem [Processo=" + idProcesso + ", Valor=R$ " + valorTotal + ", Destino=" + destino.getNome() + "]";
@@ -0,0 +1,12 @@
+package org.example.service;
+
+/**
+ * Como agrupar as viagens numa análise (ServicoConsulta.agruparViagens).
+ */
+public enum AgrupamentoViagens {
+    ORGAO,
+    CIDADE,
+    UF,
+    MES, // Mês de início da viagem (ex: 2023-07)
+    TOTAL // Um único grupo com todas as viagens do filtro
+}
@@ -0,0 +1,79 @@
+package org.example.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Acesso ao CSV de viagens dentro do ZIP distribuído pelo Portal da Transparência
+ * (ex: 2023_Viagem.csv, junto com 2023_Pagamento.csv, 2023_Passagem.csv e 2023_Trecho.csv).
+ * <p>
+ * A entrada é descompactada aos poucos, enquanto é lida: nada é extraído para o disco,
+ * então não é preciso espaço livre do tamanho do arquivo descompactado.
+ * O ZipFile localiza a entrada pelo diretório central do ZIP, sem descompactar as outras.
+ */
+final class ArquivoZipViagens {
+
+    private ArquivoZipViagens() {
+    }
+
+    static boolean ehZip(String caminhoArquivo) {
+        return caminhoArquivo.toLowerCase(Locale.ROOT).endsWith(".zip");
+    }
+
+    /**
+     * Abre a entrada de viagens do ZIP. Fechar o InputStream fecha também o ZIP.
+     *
+     * @throws IOException se o ZIP não tiver um CSV de viagens
+     */
+    static InputStream abrirEntradaViagens(String caminhoZip) throws IOException {
+        ZipFile zip = new ZipFile(caminhoZip);
+        try {
+            ZipEntry entrada = buscarEntradaViagens(zip);
+            if (entrada == null) {
+                throw new IOException("O arquivo " + caminhoZip + " não tem um CSV de viagens (ex: 2023_Viagem.csv)");
+            }
+            return new FilterInputStream(zip.getInputStream(entrada)) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        zip.close();
+                    }
+                }
+            };
+        } catch (IOException | RuntimeException e) {
+            zip.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Tamanho descompactado da entrada de viagens, ou -1 se o ZIP não informar (ou não tiver a entrada).
+     */
+    static long tamanhoEntradaViagens(String caminhoZip) throws IOException {
+        try (ZipFile zip = new ZipFile(caminhoZip)) {
+            ZipEntry entrada = buscarEntradaViagens(zip);
+            return entrada == null ? -1 : entrada.getSize();
+        }
+    }
+
+    // Entrada cujo nome termina em "Viagem.csv" (sem diferenciar maiúsculas), fora de subpastas de sistema
+    private static ZipEntry buscarEntradaViagens(ZipFile zip) {
+        Enumeration<? extends ZipEntry> entradas = zip.entries();
+        while (entradas.hasMoreElements()) {
+            ZipEntry entrada = entradas.nextElement();
+            String nome = entrada.getName();
+            String arquivo = nome.substring(nome.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+            if (!entrada.isDirectory() && !nome.startsWith("__MACOSX/") && arquivo.endsWith("viagem.csv")) {
+                return entrada;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.service;
+
+import org.example.model.Viagem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bloco de linhas do CSV que anda junto pelas etapas do PipelineImportacao.
+ * A sequência define a ordem em que os blocos são resolvidos e gravados,
+ * não importa qual thread fez a transformação.
+ */
+class BlocoImportacao {
+
+    // Marca de fim de arquivo nas filas do pipeline
+    static final BlocoImportacao FIM = new BlocoImportacao(-1, 0, new ArrayList<>(0), -1);
+
+    final long sequencia;
+
+    // Número (no arquivo) da primeira linha do bloco. A linha 1 é o cabeçalho.
+    final int primeiraLinha;
+
+    // Quantidade de linhas do CSV no bloco (inclusive as descartadas), para o checkpoint
+    final int totalLinhas;
+
+    // Posição no arquivo logo depois da última linha do bloco (-1 se o leitor não souber), para o checkpoint
+    final long posicaoFim;
+
+    // Linhas cruas do CSV (só as colunas usadas, ver ColunasViagem); liberadas depois da transformação
+    List<String[]> linhasBrutas;
+
+    // Viagens convertidas e o número da linha de cada uma (mesma posição nas duas listas)
+    final List<Viagem> viagens;
+    final List<Integer> linhas;
+
+    // Preenchido pelo sequenciador: blocos anteriores, ainda sem commit, com algum id_processo deste bloco.
+    // O gravador só confere e grava este bloco depois que eles forem confirmados.
+    List<Long> dependencias = List.of();
+
+    BlocoImportacao(long sequencia, int primeiraLinha, List<String[]> linhasBrutas, long posicaoFim) {
+        this.sequencia = sequencia;
+        this.primeiraLinha = primeiraLinha;
+        this.totalLinhas = linhasBrutas.size();
+        this.posicaoFim = posicaoFim;
+        this.linhasBrutas = linhasBrutas;
+        this.viagens = new ArrayList<>(linhasBrutas.size());
+        this.linhas = new ArrayList<>(linhasBrutas.size());
+    }
+
+    void adicionar(Viagem viagem, int linha) {
+        viagens.add(viagem);
+        linhas.add(linha);
+    }
+
+    int tamanho() {
+        return viagens.size();
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.service;
+
+import org.example.dto.MetricasCacheDTO;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache dos resultados das consultas da tela (read-through), na frente do banco.
+ * <p>
+ * A chave é a consulta mais os parâmetros (ex: ["gastadores", 5]). Cada resultado guarda a versão
+ * dos dados (ServicoImportacao.getVersaoDados()) lida antes de a consulta ir ao banco; quando uma
+ * importação confirma viagens, a versão avança e os resultados antigos deixam de valer na próxima
+ * leitura. Se a importação confirmar no meio da consulta, o resultado já nasce com a versão antiga
+ * e é descartado na leitura seguinte.
+ * <p>
+ * Tamanho limitado (auditgov.cache.entradas), com despejo do menos usado recentemente (LRU:
+ * LinkedHashMap em ordem de acesso). Os valores guardados são compartilhados entre as leituras:
+ * quem recebe não deve alterá-los.
+ * <p>
+ * A versão é da JVM: uma importação feita por outro processo (ex: ImportadorLinhaComando)
+ * só aparece depois de limpar().
+ */
+class CacheConsultas {
+
+    private static final int MAXIMO_ENTRADAS = Integer.getInteger("auditgov.cache.entradas", 256);
+
+    @FunctionalInterface
+    interface Consulta<T> {
+        T executar() throws SQLException;
+    }
+
+    private record Entrada(long versao, Object valor) {
+    }
+
+    private final Map<List<Object>, Entrada> entradas = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, Entrada> maisAntiga) {
+            if (size() <= MAXIMO_ENTRADAS) return false;
+            despejos.increment();
+            return true;
+        }
+    };
+
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder faltas = new LongAdder();
+    private final LongAdder despejos = new LongAdder();
+    private final LongAdder invalidacoes = new LongAdder();
+
+    /**
+     * Devolve o resultado guardado para a chave, se ainda for da versão atual dos dados;
+     * senão executa a consulta e guarda o resultado.
+     * Duas threads pedindo a mesma chave ao mesmo tempo podem ir as duas ao banco.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T buscar(List<Object> chave, Consulta<T> consulta) throws SQLException {
+        long versao = ServicoImportacao.getVersaoDados();
+        synchronized (entradas) {
+            Entrada entrada = entradas.get(chave);
+            if (entrada != null) {
+                if (entrada.versao() == versao) {
+                    acertos.increment();
+                    return (T) entrada.valor();
+                }
+                entradas.remove(chave);
+                invalidacoes.increment();
+            }
+        }
+
+        faltas.increment();
+        T valor = consulta.executar(); // Fora do lock: as outras chaves não esperam o banco
+        synchronized (entradas) {
+            Entrada atual = entradas.get(chave);
+            // Não troca um resultado mais novo (de outra thread) por este
+            if (atual == null || atual.versao() <= versao) {
+                entradas.put(chave, new Entrada(versao, valor));
+            }
+        }
+        return valor;
+    }
+
+    /**
+     * Esquece todos os resultados guardados.
+     */
+    void limpar() {
+        synchronized (entradas) {
+            invalidacoes.add(entradas.size());
+            entradas.clear();
+        }
+    }
+
+    MetricasCacheDTO fotografar() {
+        int tamanho;
+        synchronized (entradas) {
+            tamanho = entradas.size();
+        }
+        return new MetricasCacheDTO(tamanho, MAXIMO_ENTRADAS, acertos.sum(), faltas.sum(),
+                despejos.sum(), invalidacoes.sum(), ServicoImportacao.getVersaoDados());
+    }
+}
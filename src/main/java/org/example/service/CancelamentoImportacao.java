@@ -0,0 +1,41 @@
+package org.example.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pedido de cancelamento de uma importação em andamento (ConfiguracaoImportacao.setCancelamento).
+ * <p>
+ * cancelar() pode ser chamado de qualquer thread (ex: o botão da tela). A importação para de ler,
+ * desfaz (rollback) o que cada gravador ainda não confirmou, devolve as conexões ao pool e termina
+ * com ImportacaoCanceladaException. As partes já confirmadas ficam no banco, com o checkpoint:
+ * importar o mesmo arquivo de novo continua de onde parou.
+ */
+public class CancelamentoImportacao {
+
+    private final AtomicBoolean cancelado = new AtomicBoolean(false);
+    private final List<Runnable> acoes = new CopyOnWriteArrayList<>();
+
+    /**
+     * Pede o cancelamento. Chamadas repetidas não têm efeito.
+     */
+    public void cancelar() {
+        if (cancelado.compareAndSet(false, true)) {
+            acoes.forEach(Runnable::run);
+        }
+    }
+
+    public boolean isCancelado() {
+        return cancelado.get();
+    }
+
+    /**
+     * Registra uma ação a executar no cancelamento (na thread de quem cancelou).
+     * Se já estiver cancelado, executa na hora. A ação pode rodar mais de uma vez.
+     */
+    void aoCancelar(Runnable acao) {
+        acoes.add(acao);
+        if (cancelado.get()) acao.run();
+    }
+}
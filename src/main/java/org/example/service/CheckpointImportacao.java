@@ -0,0 +1,141 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Ponto de retomada da importação de um arquivo (tabela importacao_checkpoint).
+ * <p>
+ * O arquivo é identificado sem ser lido inteiro (ver identificarArquivo): tamanho, data de modificação
+ * e o conteúdo do primeiro e do último MB. Renomear ou mover o arquivo não perde o checkpoint;
+ * um arquivo regravado ou copiado (outra data de modificação) começa do zero, e as viagens que já estão
+ * no banco são puladas do mesmo jeito.
+ * <p>
+ * Os gravadores confirmam blocos fora de ordem (cada um na sua conexão), então o checkpoint
+ * guarda só o prefixo contíguo do arquivo: as linhas até o primeiro bloco ainda não confirmado,
+ * e a posição (em bytes) logo depois delas, para a retomada abrir o leitor direto ali.
+ * Blocos confirmados depois desse buraco ficam aqui esperando; se a importação cair antes,
+ * eles são lidos de novo na retomada e as viagens que já estão no banco são puladas
+ * (ver PipelineImportacao). Thread-safe.
+ */
+class CheckpointImportacao {
+
+    private static final int TAMANHO_AMOSTRA = 1 << 20; // 1 MB do começo e 1 MB do fim
+
+    /**
+     * Linhas do CSV de um bloco gravado e a posição no arquivo logo depois da última delas
+     * (-1 se o leitor não souber, ver LeitorLinhasCsv.getPosicaoFimLinha).
+     */
+    record Bloco(int linhas, long posicaoFim) {
+    }
+
+    /**
+     * Prefixo contíguo confirmado: linhas do CSV (sem o cabeçalho) e a posição logo depois delas (-1 se desconhecida).
+     */
+    record Prefixo(long linhas, long posicao) {
+    }
+
+    private final String hashArquivo;
+    private final String nomeArquivo;
+
+    // Prefixo confirmado do começo do arquivo até o bloco proximaSequencia
+    private Prefixo prefixo;
+    private long proximaSequencia = 0;
+
+    // Blocos já confirmados depois de proximaSequencia, por sequência
+    private final Map<Long, Bloco> confirmadosForaDeOrdem = new HashMap<>();
+
+    /**
+     * @param jaConfirmado Prefixo confirmado numa importação anterior do mesmo arquivo.
+     *                     A leitura pula essas linhas e o bloco 0 começa logo depois delas.
+     */
+    CheckpointImportacao(String hashArquivo, String nomeArquivo, Prefixo jaConfirmado) {
+        this.hashArquivo = hashArquivo;
+        this.nomeArquivo = nomeArquivo;
+        this.prefixo = jaConfirmado;
+    }
+
+    String getHashArquivo() {
+        return hashArquivo;
+    }
+
+    String getNomeArquivo() {
+        return nomeArquivo;
+    }
+
+    synchronized Prefixo getPrefixo() {
+        return prefixo;
+    }
+
+    /**
+     * Prefixo confirmado se os blocos informados (por sequência) também forem confirmados.
+     * Usado para gravar o checkpoint na mesma transação desses blocos, antes do commit.
+     */
+    synchronized Prefixo prefixoConfirmadoCom(Map<Long, Bloco> blocos) {
+        Prefixo resultado = prefixo;
+        for (long sequencia = proximaSequencia; ; sequencia++) {
+            Bloco bloco = confirmadosForaDeOrdem.get(sequencia);
+            if (bloco == null) bloco = blocos.get(sequencia);
+            if (bloco == null) return resultado;
+            resultado = new Prefixo(resultado.linhas() + bloco.linhas(), bloco.posicaoFim());
+        }
+    }
+
+    /**
+     * Registra os blocos confirmados (depois do commit) e avança o prefixo contíguo.
+     */
+    synchronized void marcarConfirmados(Map<Long, Bloco> blocos) {
+        confirmadosForaDeOrdem.putAll(blocos);
+        Bloco bloco;
+        while ((bloco = confirmadosForaDeOrdem.remove(proximaSequencia)) != null) {
+            prefixo = new Prefixo(prefixo.linhas() + bloco.linhas(), bloco.posicaoFim());
+            proximaSequencia++;
+        }
+    }
+
+    /**
+     * Identificação do arquivo (o CSV ou o ZIP, como está no disco), em hexadecimal: SHA-256 do tamanho,
+     * da data de modificação e do primeiro e do último MB. Lê no máximo 2 MB, qualquer que seja o tamanho.
+     */
+    static String identificarArquivo(String caminhoArquivo) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 não disponível", e); // Toda JVM tem SHA-256
+        }
+        Path caminho = Path.of(caminhoArquivo);
+        try (FileChannel canal = FileChannel.open(caminho, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            ByteBuffer cabecalho = ByteBuffer.allocate(2 * Long.BYTES);
+            cabecalho.putLong(tamanho).putLong(Files.getLastModifiedTime(caminho).toMillis()).flip();
+            digest.update(cabecalho);
+
+            long inicioFim = Math.max(TAMANHO_AMOSTRA, tamanho - TAMANHO_AMOSTRA); // Sem repetir bytes do começo
+            ByteBuffer amostra = ByteBuffer.allocate(TAMANHO_AMOSTRA);
+            lerAmostra(canal, 0, Math.min(tamanho, TAMANHO_AMOSTRA), amostra, digest);
+            lerAmostra(canal, inicioFim, tamanho, amostra, digest);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void lerAmostra(FileChannel canal, long inicio, long fim, ByteBuffer amostra,
+                                   MessageDigest digest) throws IOException {
+        if (fim <= inicio) return;
+        amostra.clear().limit((int) (fim - inicio));
+        while (amostra.hasRemaining()) {
+            if (canal.read(amostra, inicio + amostra.position()) < 0) break;
+        }
+        amostra.flip();
+        digest.update(amostra);
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.service;
+
+/**
+ * Colunas do CSV de viagens que a importação usa, e a ordem em que os leitores
+ * (LeitorLinhasCsv) as entregam.
+ * <p>
+ * O número de colunas varia de arquivo para arquivo, então os valores são localizados de trás
+ * para frente. Se baseando no cabeçalho: ...;Diárias;Passagens;Devolução;Outros
+ * <pre>
+ *   Outros    = índice [total - 1]
+ *   Devolução = índice [total - 2]
+ *   Passagens = índice [total - 3]
+ *   Diárias   = índice [total - 4]
+ * </pre>
+ */
+final class ColunasViagem {
+
+    // Posição no arquivo
+    static final int COLUNA_ID_PROCESSO = 0;
+    static final int COLUNA_ORGAO = 6;
+    static final int COLUNA_DATA_INICIO = 14;
+    static final int COLUNA_DESTINO = 16;
+    static final int COLUNAS_VALORES_NO_FIM = 4; // Diárias, Passagens, Devolução, Outros
+
+    // Linhas com menos colunas que isso são ignoradas
+    static final int MINIMO_COLUNAS = 15;
+
+    // Posição no array entregue pelos leitores
+    static final int ID_PROCESSO = 0;
+    static final int ORGAO = 1;
+    static final int DATA_INICIO = 2;
+    static final int DESTINO = 3; // null se a linha não tiver a coluna 16
+    static final int DIARIAS = 4;
+    static final int PASSAGENS = 5;
+    static final int DEVOLUCAO = 6;
+    static final int OUTROS = 7;
+    static final int TOTAL = 8;
+
+    // Entregue no lugar de uma linha com menos de MINIMO_COLUNAS colunas
+    static final String[] LINHA_CURTA = new String[0];
+
+    private ColunasViagem() {
+    }
+
+    /**
+     * Coluna do arquivo que vai na posição do array projetado, ou -1 se a linha não tiver essa coluna.
+     * Numa linha com poucas colunas a mesma coluna pode ir para duas posições (ex: destino e outros).
+     */
+    static int colunaNoArquivo(int posicao, int totalColunas) {
+        int coluna = switch (posicao) {
+            case ID_PROCESSO -> COLUNA_ID_PROCESSO;
+            case ORGAO -> COLUNA_ORGAO;
+            case DATA_INICIO -> COLUNA_DATA_INICIO;
+            case DESTINO -> COLUNA_DESTINO;
+            default -> totalColunas - (OUTROS + 1 - posicao); // Valores: contados do fim
+        };
+        return coluna < totalColunas ? coluna : -1;
+    }
+
+    /**
+     * Separa as colunas usadas de uma linha completa (ex: a lida pelo OpenCSV).
+     */
+    static String[] projetar(String[] dados) {
+        int total = dados.length;
+        if (total < MINIMO_COLUNAS) return LINHA_CURTA;
+
+        String[] colunas = new String[TOTAL];
+        for (int posicao = 0; posicao < TOTAL; posicao++) {
+            int coluna = colunaNoArquivo(posicao, total);
+            colunas[posicao] = coluna >= 0 ? dados[coluna] : null;
+        }
+        return colunas;
+    }
+}
@@ -0,0 +1,231 @@
+package org.example.service;
+
+/**
+ * Parâmetros da importação (ServicoImportacao).
+ * Os valores padrão servem para a maioria dos arquivos do Portal da Transparência.
+ */
+public class ConfiguracaoImportacao {
+
+    // Como o CSV é lido (ver TipoLeitorCsv)
+    private TipoLeitorCsv tipoLeitorCsv = TipoLeitorCsv.BYTES;
+
+    // Threads que separam os trechos do arquivo (só no leitor MAPEADO_PARALELO)
+    private int numeroThreadsLeitura = Runtime.getRuntime().availableProcessors();
+
+    // Como as viagens vão para o banco (ver ModoGravacao)
+    private ModoGravacao modoGravacao = ModoGravacao.LOTE;
+
+    // Quantidade de linhas por executeBatch (modo LOTE)
+    private int tamanhoLote = 1000;
+
+    // Liga o rewriteBatchedStatements do driver do MariaDB
+    private boolean reescreverLotes = true;
+
+    // Linhas gravadas entre um commit e outro (no modo LOAD_DATA, também o tamanho de cada carga)
+    private int tamanhoCommit = 10000;
+
+    // Linhas do CSV agrupadas em cada bloco entregue pelo leitor
+    private int tamanhoBlocoLeitura = 500;
+
+    // Blocos que podem ficar esperando na fila entre o leitor e o gravador.
+    // Memória usada pela leitura ~ capacidadeFila * tamanhoBlocoLeitura linhas.
+    private int capacidadeFila = 8;
+
+    // Threads que limpam/convertem as linhas do CSV
+    private int numeroTransformadores = Runtime.getRuntime().availableProcessors();
+
+    // Threads (e conexões) que gravam as viagens no banco
+    private int numeroEscritores = 1;
+
+    // Carrega todos os órgãos e cidades para o cache antes de começar
+    private boolean preCarregarDimensoes = true;
+
+    // Grava o checkpoint a cada commit e retoma de onde a última importação do mesmo arquivo parou
+    private boolean retomarImportacao = true;
+
+    // Importação delta: viagens já no banco são comparadas pelo hash do conteúdo e regravadas se mudaram
+    // (sem o delta, viagens já no banco são só puladas)
+    private boolean importacaoDelta = false;
+
+    // Recebe o andamento da importação (pode ser null)
+    private OuvinteProgressoImportacao ouvinteProgresso;
+
+    // Intervalo mínimo entre duas chamadas do ouvinte (100 ms = até 10 por segundo)
+    private long intervaloProgressoMs = 100;
+
+    // Permite cancelar a importação em andamento (pode ser null)
+    private CancelamentoImportacao cancelamento;
+
+    public TipoLeitorCsv getTipoLeitorCsv() {
+        return tipoLeitorCsv;
+    }
+
+    public void setTipoLeitorCsv(TipoLeitorCsv tipoLeitorCsv) {
+        if (tipoLeitorCsv == null) {
+            throw new IllegalArgumentException("Tipo de leitor do CSV não pode ser nulo");
+        }
+        this.tipoLeitorCsv = tipoLeitorCsv;
+    }
+
+    public int getNumeroThreadsLeitura() {
+        return numeroThreadsLeitura;
+    }
+
+    public void setNumeroThreadsLeitura(int numeroThreadsLeitura) {
+        if (numeroThreadsLeitura < 1) {
+            throw new IllegalArgumentException("Número de threads de leitura deve ser maior que zero: " + numeroThreadsLeitura);
+        }
+        this.numeroThreadsLeitura = numeroThreadsLeitura;
+    }
+
+    public ModoGravacao getModoGravacao() {
+        return modoGravacao;
+    }
+
+    public void setModoGravacao(ModoGravacao modoGravacao) {
+        if (modoGravacao == null) {
+            throw new IllegalArgumentException("Modo de gravação não pode ser nulo");
+        }
+        this.modoGravacao = modoGravacao;
+    }
+
+    public int getTamanhoLote() {
+        return tamanhoLote;
+    }
+
+    public void setTamanhoLote(int tamanhoLote) {
+        if (tamanhoLote < 1) {
+            throw new IllegalArgumentException("Tamanho do lote deve ser maior que zero: " + tamanhoLote);
+        }
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    public boolean isReescreverLotes() {
+        return reescreverLotes;
+    }
+
+    public void setReescreverLotes(boolean reescreverLotes) {
+        this.reescreverLotes = reescreverLotes;
+    }
+
+    public int getTamanhoCommit() {
+        return tamanhoCommit;
+    }
+
+    public void setTamanhoCommit(int tamanhoCommit) {
+        if (tamanhoCommit < 1) {
+            throw new IllegalArgumentException("Tamanho do commit deve ser maior que zero: " + tamanhoCommit);
+        }
+        this.tamanhoCommit = tamanhoCommit;
+    }
+
+    public int getTamanhoBlocoLeitura() {
+        return tamanhoBlocoLeitura;
+    }
+
+    public void setTamanhoBlocoLeitura(int tamanhoBlocoLeitura) {
+        if (tamanhoBlocoLeitura < 1) {
+            throw new IllegalArgumentException("Tamanho do bloco deve ser maior que zero: " + tamanhoBlocoLeitura);
+        }
+        this.tamanhoBlocoLeitura = tamanhoBlocoLeitura;
+    }
+
+    public int getCapacidadeFila() {
+        return capacidadeFila;
+    }
+
+    public void setCapacidadeFila(int capacidadeFila) {
+        if (capacidadeFila < 1) {
+            throw new IllegalArgumentException("Capacidade da fila deve ser maior que zero: " + capacidadeFila);
+        }
+        this.capacidadeFila = capacidadeFila;
+    }
+
+    public int getNumeroTransformadores() {
+        return numeroTransformadores;
+    }
+
+    public void setNumeroTransformadores(int numeroTransformadores) {
+        if (numeroTransformadores < 1) {
+            throw new IllegalArgumentException("Número de transformadores deve ser maior que zero: " + numeroTransformadores);
+        }
+        this.numeroTransformadores = numeroTransformadores;
+    }
+
+    public int getNumeroEscritores() {
+        return numeroEscritores;
+    }
+
+    public void setNumeroEscritores(int numeroEscritores) {
+        if (numeroEscritores < 1) {
+            throw new IllegalArgumentException("Número de escritores deve ser maior que zero: " + numeroEscritores);
+        }
+        this.numeroEscritores = numeroEscritores;
+    }
+
+    public boolean isPreCarregarDimensoes() {
+        return preCarregarDimensoes;
+    }
+
+    public void setPreCarregarDimensoes(boolean preCarregarDimensoes) {
+        this.preCarregarDimensoes = preCarregarDimensoes;
+    }
+
+    public boolean isRetomarImportacao() {
+        return retomarImportacao;
+    }
+
+    public void setRetomarImportacao(boolean retomarImportacao) {
+        this.retomarImportacao = retomarImportacao;
+    }
+
+    public boolean isImportacaoDelta() {
+        return importacaoDelta;
+    }
+
+    public void setImportacaoDelta(boolean importacaoDelta) {
+        this.importacaoDelta = importacaoDelta;
+    }
+
+    public OuvinteProgressoImportacao getOuvinteProgresso() {
+        return ouvinteProgresso;
+    }
+
+    public void setOuvinteProgresso(OuvinteProgressoImportacao ouvinteProgresso) {
+        this.ouvinteProgresso = ouvinteProgresso;
+    }
+
+    public long getIntervaloProgressoMs() {
+        return intervaloProgressoMs;
+    }
+
+    public void setIntervaloProgressoMs(long intervaloProgressoMs) {
+        if (intervaloProgressoMs < 1) {
+            throw new IllegalArgumentException("Intervalo do progresso deve ser maior que zero: " + intervaloProgressoMs);
+        }
+        this.intervaloProgressoMs = intervaloProgressoMs;
+    }
+
+    public CancelamentoImportacao getCancelamento() {
+        return cancelamento;
+    }
+
+    public void setCancelamento(CancelamentoImportacao cancelamento) {
+        this.cancelamento = cancelamento;
+    }
+
+    /**
+     * Descrição curta do modo de escrita, usada nos relatórios da importação.
+     */
+    public String descreverModo() {
+        String threads = ", " + numeroTransformadores + " transformadores, " + numeroEscritores + " gravadores, "
+                + tipoLeitorCsv.getDescricao()
+                + (tipoLeitorCsv == TipoLeitorCsv.MAPEADO_PARALELO ? " (" + numeroThreadsLeitura + " threads)" : "")
+                + (importacaoDelta ? ", delta" : "");
+        return switch (modoGravacao) {
+            case LOTE -> "lote de " + tamanhoLote + (reescreverLotes ? " (rewriteBatchedStatements)" : "") + threads;
+            case LOAD_DATA -> modoGravacao.getDescricao() + " a cada " + tamanhoCommit + " linhas" + threads;
+            default -> modoGravacao.getDescricao() + threads;
+        };
+    }
+}
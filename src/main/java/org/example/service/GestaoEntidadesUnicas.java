@@ -6,8 +6,18 @@ import org.example.model.Orgao;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
 
 /**
  * Serviço responsável pela gestão de entidades únicas (sinônimos).
@@ -16,23 +26,35 @@ import java.util.Map;
  * Separação de responsabilidades:
  * - Esta classe: lógica de negócio (cache, normalização)
  * - DadosDAO: apenas operações SQL puras
+ * <p>
+ * Thread-safe: várias threads de importação podem usar a mesma instância.
+ * Cada nome novo é inserido uma única vez, mesmo com muitas threads pedindo
+ * o mesmo órgão/cidade ao mesmo tempo.
  */
 public class GestaoEntidadesUnicas {
 
     private final DadosDAO dao;
 
     // Cache em memória para evitar consultas repetidas ao banco
-    // Chave: nome normalizado do órgão -> Valor: ID
-    private final Map<String, Integer> cacheOrgaos = new HashMap<>();
+    // Chave: nome normalizado do órgão -> Valor: ID (futuro, ver resolver())
+    private final ConcurrentMap<String, CompletableFuture<Integer>> cacheOrgaos = new ConcurrentHashMap<>();
 
     // Cache em memória para cidades
-    // Chave: "nomeCidade|UF" normalizado -> Valor: ID
-    private final Map<String, Integer> cacheCidades = new HashMap<>();
+    // Chave: "nomeCidade|UF" normalizado -> Valor: ID (futuro, ver resolver())
+    private final ConcurrentMap<String, CompletableFuture<Integer>> cacheCidades = new ConcurrentHashMap<>();
 
     public GestaoEntidadesUnicas() {
         this.dao = new DadosDAO();
     }
 
+    /**
+     * Consulta (ou inserção) no banco que devolve o ID de uma entidade.
+     */
+    @FunctionalInterface
+    private interface BuscaId {
+        int executar() throws SQLException;
+    }
+
     /**
      * Normaliza o nome para evitar duplicatas por diferenças de formatação.
      * Remove espaços extras, converte para maiúsculas e trim.
@@ -49,30 +71,27 @@ public class GestaoEntidadesUnicas {
      * <p>
      * Exemplo: Se "MINISTERIO DA SAUDE" já existe com ID 50,
      * retornará 50 mesmo se chamado com "ministerio da saude" (minúsculas).
+     * <p>
+     * Pode ser chamado de várias threads ao mesmo tempo (ver resolver()).
      */
     public int salvarOuRecuperarOrgao(Connection conn, Orgao orgao) throws SQLException {
         String nomeNormalizado = normalizarNome(orgao.getNome());
 
-        // 1. Verifica no cache primeiro (performance)
-        if (cacheOrgaos.containsKey(nomeNormalizado)) {
-            return cacheOrgaos.get(nomeNormalizado);
-        }
-
-        // 2. Consulta no banco de dados (delega para o DAO)
-        Integer idExistente = dao.buscarIdOrgaoPorNome(conn, nomeNormalizado);
+        return resolver(cacheOrgaos, nomeNormalizado, () -> {
+            // Consulta no banco de dados (delega para o DAO)
+            Integer idExistente = dao.buscarIdOrgaoPorNome(conn, nomeNormalizado);
+            if (idExistente != null) return idExistente;
 
-        if (idExistente != null) {
-            // Encontrou no banco, atualiza o cache
-            cacheOrgaos.put(nomeNormalizado, idExistente);
-            return idExistente;
-        }
-
-        // 3. Se não encontrou, insere novo registro (delega para o DAO)
-        int novoId = dao.inserirOrgao(conn, orgao);
-
-        // Atualiza o cache
-        cacheOrgaos.put(nomeNormalizado, novoId);
-        return novoId;
+            // Se não encontrou, insere novo registro (delega para o DAO)
+            try {
+                return dao.inserirOrgao(conn, new Orgao(nomeNormalizado));
+            } catch (SQLIntegrityConstraintViolationException e) {
+                // Outro processo inseriu o mesmo nome entre a consulta e o INSERT
+                idExistente = dao.buscarIdOrgaoPorNome(conn, nomeNormalizado);
+                if (idExistente != null) return idExistente;
+                throw e;
+            }
+        });
     }
 
     /**
@@ -80,32 +99,281 @@ public class GestaoEntidadesUnicas {
      * Se existir, retorna o ID existente.
      * Se não existir, insere e retorna o novo ID.
      * Considera nome + UF como chave única.
+     * <p>
+     * Pode ser chamado de várias threads ao mesmo tempo (ver resolver()).
      */
     public int salvarOuRecuperarCidade(Connection conn, Cidade cidade) throws SQLException {
         String nomeNormalizado = normalizarNome(cidade.getNome());
         String ufNormalizado = normalizarNome(cidade.getUf());
         String chaveCache = nomeNormalizado + "|" + ufNormalizado;
 
+        return resolver(cacheCidades, chaveCache, () -> {
+            // Consulta no banco de dados (delega para o DAO)
+            Integer idExistente = dao.buscarIdCidadePorNomeEUf(conn, nomeNormalizado, ufNormalizado);
+            if (idExistente != null) return idExistente;
+
+            // Se não encontrou, insere novo registro (delega para o DAO)
+            try {
+                return dao.inserirCidade(conn, new Cidade(nomeNormalizado, ufNormalizado));
+            } catch (SQLIntegrityConstraintViolationException e) {
+                // Outro processo inseriu a mesma cidade entre a consulta e o INSERT
+                idExistente = dao.buscarIdCidadePorNomeEUf(conn, nomeNormalizado, ufNormalizado);
+                if (idExistente != null) return idExistente;
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Resolve os IDs de uma lista de órgãos (ex: todos os órgãos de um bloco da importação)
+     * e grava o ID em cada objeto.
+     * Os nomes que não estão no cache são buscados com uma única consulta, e os que não
+     * existem no banco são inseridos com um único INSERT de várias linhas, em vez de um
+     * SELECT + INSERT por nome.
+     */
+    public void resolverOrgaos(Connection conn, List<Orgao> orgaos) throws SQLException {
+        resolverEmLote(cacheOrgaos, orgaos,
+                orgao -> normalizarNome(orgao.getNome()),
+                representantes -> buscarOuInserirOrgaos(conn, representantes),
+                Orgao::setId,
+                orgao -> salvarOuRecuperarOrgao(conn, orgao));
+    }
+
+    /**
+     * Igual a resolverOrgaos(), para cidades (chave nome + UF).
+     */
+    public void resolverCidades(Connection conn, List<Cidade> cidades) throws SQLException {
+        resolverEmLote(cacheCidades, cidades,
+                cidade -> normalizarNome(cidade.getNome()) + "|" + normalizarNome(cidade.getUf()),
+                representantes -> buscarOuInserirCidades(conn, representantes),
+                Cidade::setId,
+                cidade -> salvarOuRecuperarCidade(conn, cidade));
+    }
+
+    /**
+     * Busca (e insere os que faltarem) os IDs de várias chaves de uma vez.
+     * Recebe chave normalizada -> uma entidade com aquela chave; devolve chave -> ID.
+     */
+    @FunctionalInterface
+    private interface BuscaIdsEmLote<T> {
+        Map<String, Integer> executar(Map<String, T> representantes) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface BuscaIdIndividual<T> {
+        int executar(T entidade) throws SQLException;
+    }
+
+    /**
+     * Versão em lote de resolver(): reserva no cache (putIfAbsent) as chaves novas,
+     * resolve todas as reservadas por esta thread com uma ida ao banco e depois
+     * espera as que outras threads estavam resolvendo.
+     */
+    private <T> void resolverEmLote(ConcurrentMap<String, CompletableFuture<Integer>> cache, List<T> entidades,
+                                    Function<T, String> chaveDe, BuscaIdsEmLote<T> busca,
+                                    ObjIntConsumer<T> definirId, BuscaIdIndividual<T> individual) throws SQLException {
+        List<String> chaves = new ArrayList<>(entidades.size());
+        Map<String, CompletableFuture<Integer>> reservadas = new LinkedHashMap<>();
+        Map<String, T> representantes = new LinkedHashMap<>();
+
+        // 1. Reserva as chaves que ninguém resolveu ainda
+        for (T entidade : entidades) {
+            String chave = chaveDe.apply(entidade);
+            chaves.add(chave);
+            if (cache.containsKey(chave) || reservadas.containsKey(chave)) continue;
+
+            CompletableFuture<Integer> novo = new CompletableFuture<>();
+            if (cache.putIfAbsent(chave, novo) == null) {
+                reservadas.put(chave, novo);
+                representantes.put(chave, entidade);
+            }
+        }
+
+        // 2. Resolve as reservadas de uma vez
+        if (!reservadas.isEmpty()) {
+            try {
+                Map<String, Integer> ids = busca.executar(representantes);
+                for (Map.Entry<String, CompletableFuture<Integer>> reservada : reservadas.entrySet()) {
+                    Integer id = ids.get(reservada.getKey());
+                    if (id == null) {
+                        throw new SQLException("Não foi possível obter o ID de: " + reservada.getKey());
+                    }
+                    reservada.getValue().complete(id);
+                }
+            } catch (SQLException | RuntimeException e) {
+                for (Map.Entry<String, CompletableFuture<Integer>> reservada : reservadas.entrySet()) {
+                    if (!reservada.getValue().isDone()) {
+                        cache.remove(reservada.getKey(), reservada.getValue());
+                        reservada.getValue().completeExceptionally(e);
+                    }
+                }
+                throw e;
+            }
+        }
+
+        // 3. Preenche os IDs (as chaves de outras threads podem ainda estar sendo resolvidas)
+        for (int i = 0; i < entidades.size(); i++) {
+            T entidade = entidades.get(i);
+            CompletableFuture<Integer> futuro = cache.get(chaves.get(i));
+            // Sem futuro: a thread que resolvia esta chave falhou; tenta de novo individualmente
+            int id = futuro != null ? aguardar(futuro, chaves.get(i)) : individual.executar(entidade);
+            definirId.accept(entidade, id);
+        }
+    }
+
+    private Map<String, Integer> buscarOuInserirOrgaos(Connection conn, Map<String, Orgao> representantes)
+            throws SQLException {
+        Map<String, Integer> ids = new HashMap<>();
+        // A chave já é o nome normalizado: consulta e INSERT usam o mesmo texto que o cache,
+        // senão um nome com espaços repetidos não seria encontrado e entraria de novo
+        List<String> nomes = new ArrayList<>(representantes.keySet());
+
+        // 1. Uma consulta para todos os nomes
+        for (Object[] linha : dao.buscarOrgaosPorNomes(conn, nomes)) {
+            ids.put(normalizarNome((String) linha[1]), (Integer) linha[0]);
+        }
+
+        // 2. Um INSERT para os que faltaram, e uma consulta para pegar os IDs gerados
+        List<String> faltando = new ArrayList<>();
+        for (String nome : nomes) {
+            if (!ids.containsKey(nome)) faltando.add(nome);
+        }
+        if (!faltando.isEmpty()) {
+            dao.inserirOrgaosIgnorandoExistentes(conn, faltando);
+            for (Object[] linha : dao.buscarOrgaosPorNomes(conn, faltando)) {
+                ids.put(normalizarNome((String) linha[1]), (Integer) linha[0]);
+            }
+        }
+        return ids;
+    }
+
+    private Map<String, Integer> buscarOuInserirCidades(Connection conn, Map<String, Cidade> representantes)
+            throws SQLException {
+        Map<String, Integer> ids = new HashMap<>();
+        // Nome e UF normalizados, como na chave do cache (ver buscarOuInserirOrgaos)
+        Map<String, Cidade> normalizadas = new LinkedHashMap<>();
+        List<String> nomes = new ArrayList<>();
+        for (Map.Entry<String, Cidade> representante : representantes.entrySet()) {
+            Cidade cidade = representante.getValue();
+            Cidade normalizada = new Cidade(normalizarNome(cidade.getNome()), normalizarNome(cidade.getUf()));
+            normalizadas.put(representante.getKey(), normalizada);
+            nomes.add(normalizada.getNome());
+        }
+
+        // 1. Uma consulta para todos os nomes (pode trazer homônimas de outras UFs; o mapa filtra)
+        for (Object[] linha : dao.buscarCidadesPorNomes(conn, nomes)) {
+            ids.put(normalizarNome((String) linha[1]) + "|" + normalizarNome((String) linha[2]), (Integer) linha[0]);
+        }
+
+        // 2. Um INSERT para as que faltaram, e uma consulta para pegar os IDs gerados
+        List<Cidade> faltando = new ArrayList<>();
+        List<String> nomesFaltando = new ArrayList<>();
+        for (Map.Entry<String, Cidade> normalizada : normalizadas.entrySet()) {
+            if (!ids.containsKey(normalizada.getKey())) {
+                faltando.add(normalizada.getValue());
+                nomesFaltando.add(normalizada.getValue().getNome());
+            }
+        }
+        if (!faltando.isEmpty()) {
+            dao.inserirCidadesIgnorandoExistentes(conn, faltando);
+            for (Object[] linha : dao.buscarCidadesPorNomes(conn, nomesFaltando)) {
+                ids.put(normalizarNome((String) linha[1]) + "|" + normalizarNome((String) linha[2]), (Integer) linha[0]);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Resolve o ID da chave sem trava global:
+     * - Se a chave já está no cache, devolve o ID (ou espera ele ficar pronto).
+     * - Senão, a primeira thread a registrar o futuro com putIfAbsent é a única que vai ao banco;
+     *   as outras que chegarem com a mesma chave esperam o resultado dela.
+     * - Se a ida ao banco falhar, a chave sai do cache (a próxima chamada tenta de novo)
+     *   e quem estava esperando recebe o mesmo erro.
+     * <p>
+     * Threads com chaves diferentes nunca se bloqueiam.
+     */
+    private int resolver(ConcurrentMap<String, CompletableFuture<Integer>> cache, String chave, BuscaId busca)
+            throws SQLException {
         // 1. Verifica no cache primeiro (performance)
-        if (cacheCidades.containsKey(chaveCache)) {
-            return cacheCidades.get(chaveCache);
+        CompletableFuture<Integer> existente = cache.get(chave);
+
+        if (existente == null) {
+            CompletableFuture<Integer> novo = new CompletableFuture<>();
+            existente = cache.putIfAbsent(chave, novo);
+
+            if (existente == null) {
+                // 2. Esta thread ganhou a chave: consulta/insere no banco
+                try {
+                    int id = busca.executar();
+                    novo.complete(id);
+                    return id;
+                } catch (SQLException | RuntimeException e) {
+                    cache.remove(chave, novo);
+                    novo.completeExceptionally(e);
+                    throw e;
+                }
+            }
         }
 
-        // 2. Consulta no banco de dados (delega para o DAO)
-        Integer idExistente = dao.buscarIdCidadePorNomeEUf(conn, nomeNormalizado, ufNormalizado);
+        // 3. Outra thread já está resolvendo (ou resolveu) esta chave
+        return aguardar(existente, chave);
+    }
 
-        if (idExistente != null) {
-            // Encontrou no banco, atualiza o cache
-            cacheCidades.put(chaveCache, idExistente);
-            return idExistente;
+    private int aguardar(CompletableFuture<Integer> futuro, String chave) throws SQLException {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido esperando o ID de: " + chave, e);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof SQLException) {
+                throw new SQLException(causa.getMessage(), ((SQLException) causa).getSQLState(), causa);
+            }
+            throw new SQLException("Erro ao resolver o ID de: " + chave, causa);
         }
+    }
 
-        // 3. Se não encontrou, insere novo registro (delega para o DAO)
-        int novoId = dao.inserirCidade(conn, cidade);
+    /**
+     * Carrega todos os órgãos e cidades do banco para o cache, numa única consulta em streaming.
+     * Depois disso, só nomes realmente novos vão ao banco durante a importação.
+     * Informa no console o tempo gasto e uma estimativa da memória ocupada pelo cache.
+     */
+    public void preCarregar(Connection conn) throws SQLException {
+        long inicio = System.nanoTime();
+        int[] lidos = new int[2]; // [órgãos, cidades]
+
+        dao.carregarDimensoes(conn, (ehOrgao, id, nome, uf) -> {
+            CompletableFuture<Integer> pronto = CompletableFuture.completedFuture(id);
+            if (ehOrgao) {
+                cacheOrgaos.putIfAbsent(normalizarNome(nome), pronto);
+                lidos[0]++;
+            } else {
+                cacheCidades.putIfAbsent(normalizarNome(nome) + "|" + normalizarNome(uf), pronto);
+                lidos[1]++;
+            }
+        });
+
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+        System.out.println("Pré-carga do cache: " + lidos[0] + " órgãos e " + lidos[1] + " cidades em "
+                + ms + "ms (~" + (estimarMemoriaCache() / 1024) + " KB em memória).");
+    }
+
+    /**
+     * Estimativa (em bytes) da memória ocupada pelos dois caches, numa JVM 64 bits com
+     * ponteiros comprimidos: nó do mapa + String da chave + futuro + Integer do ID.
+     */
+    public long estimarMemoriaCache() {
+        long total = 0;
+        for (String chave : cacheOrgaos.keySet()) total += estimarEntrada(chave);
+        for (String chave : cacheCidades.keySet()) total += estimarEntrada(chave);
+        return total;
+    }
 
-        // Atualiza o cache
-        cacheCidades.put(chaveCache, novoId);
-        return novoId;
+    private static long estimarEntrada(String chave) {
+        long textoChave = 24 + ((16 + chave.length() + 7) / 8) * 8; // String + byte[] (Latin-1)
+        return 32 + textoChave + 24 + 16; // Nó + chave + CompletableFuture + Integer
     }
 
     /**
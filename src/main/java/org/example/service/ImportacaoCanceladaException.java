@@ -0,0 +1,23 @@
+package org.example.service;
+
+/**
+ * A importação foi interrompida por CancelamentoImportacao.cancelar().
+ * O que já tinha sido confirmado fica no banco; o resto foi desfeito.
+ */
+public class ImportacaoCanceladaException extends RuntimeException {
+
+    private final long viagensConfirmadas;
+
+    public ImportacaoCanceladaException(long viagensConfirmadas) {
+        super("Importação cancelada. " + viagensConfirmadas + " viagens já confirmadas ficam no banco; "
+                + "importe o mesmo arquivo de novo para continuar.");
+        this.viagensConfirmadas = viagensConfirmadas;
+    }
+
+    /**
+     * Viagens confirmadas (commit) antes do cancelamento.
+     */
+    public long getViagensConfirmadas() {
+        return viagensConfirmadas;
+    }
+}
@@ -0,0 +1,260 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Leitor do CSV de viagens direto dos bytes do arquivo (NIO), para o layout do Portal da Transparência:
+ * ISO-8859-1, separador ';' e campos que podem vir entre aspas (com "" para uma aspa dentro do campo
+ * e quebras de linha dentro das aspas).
+ * <p>
+ * Ao contrário do OpenCSV, não cria uma String para cada coluna: marca onde cada campo começa e termina
+ * no buffer e só cria as Strings das colunas usadas (ColunasViagem), depois de saber quantas colunas
+ * a linha tem (os valores são contados do fim).
+ * <p>
+ * Lê de um canal (arquivo inteiro ou entrada de ZIP, em partes, com um buffer que é reaproveitado) ou de um trecho
+ * já em memória, como um pedaço do arquivo mapeado (ver LeitorCsvParalelo).
+ * <p>
+ * Aspas: cada aspa abre ou fecha um trecho entre aspas e não entra no valor, e "" dentro das aspas
+ * vira uma aspa. Igual ao OpenCSV para campos entre aspas; aspas soltas no meio de um campo podem
+ * sair diferentes, mas a limpeza (TratamentoDados) remove todas as aspas de qualquer forma.
+ * A barra invertida não é tratada como escape.
+ */
+class LeitorCsvBytes implements LeitorLinhasCsv {
+
+    private static final int TAMANHO_BUFFER_PADRAO = 1 << 20; // 1 MB
+
+    private static final byte SEPARADOR = ';';
+    private static final byte ASPAS = '"';
+
+    private final ReadableByteChannel canal; // null ao ler um trecho em memória
+
+    // Bytes lidos e ainda não consumidos ficam em [posicao, limite)
+    private ByteBuffer dados;
+    private int posicao = 0;
+    private int limite = 0;
+    private boolean fimCanal = false;
+
+    // Posição no arquivo do byte 0 do buffer (avança quando lerMais move a linha incompleta para o começo)
+    private long inicioDados = 0;
+    private long posicaoFimLinha = 0;
+
+    // Lido pela thread de progresso; só a thread de leitura escreve
+    private volatile long bytesLidos = 0;
+
+    // Cópia de um campo, quando os dados não estão num array (ex: arquivo mapeado)
+    private byte[] copia = new byte[256];
+
+    // Início e fim [inicio, fim) de cada campo da linha atual, no buffer
+    private int[] inicios = new int[64];
+    private int[] fins = new int[64];
+    private int totalCampos;
+
+    LeitorCsvBytes(ReadableByteChannel canal, int tamanhoBuffer) {
+        this.canal = canal;
+        this.dados = ByteBuffer.allocate(tamanhoBuffer);
+    }
+
+    /**
+     * Lê as linhas de um trecho já em memória, de 0 até trecho.limit().
+     * O trecho deve começar no início de uma linha e terminar no fim de uma.
+     */
+    LeitorCsvBytes(ByteBuffer trecho) {
+        this.canal = null;
+        this.dados = trecho;
+        this.limite = trecho.limit();
+        this.fimCanal = true;
+        this.bytesLidos = trecho.limit();
+    }
+
+    LeitorCsvBytes(String caminhoArquivo) throws IOException {
+        this(caminhoArquivo, 0);
+    }
+
+    /**
+     * Lê o arquivo a partir de posicaoInicial, que deve ser o início de uma linha
+     * (ex: getPosicaoFimLinha() de uma leitura anterior, na retomada da importação).
+     */
+    LeitorCsvBytes(String caminhoArquivo, long posicaoInicial) throws IOException {
+        this(FileChannel.open(Path.of(caminhoArquivo), StandardOpenOption.READ).position(posicaoInicial),
+                TAMANHO_BUFFER_PADRAO);
+        comecarEm(posicaoInicial);
+    }
+
+    /**
+     * Lê do InputStream (ex: uma entrada de ZIP sendo descompactada). Fechar o leitor fecha o InputStream.
+     */
+    LeitorCsvBytes(InputStream entrada) {
+        this(Channels.newChannel(entrada), TAMANHO_BUFFER_PADRAO);
+    }
+
+    /**
+     * Lê do InputStream a partir de posicaoInicial (no conteúdo descompactado, no caso de um ZIP).
+     * Os bytes antes dela são descartados sem separar linhas.
+     */
+    LeitorCsvBytes(InputStream entrada, long posicaoInicial) throws IOException {
+        this(entrada);
+        entrada.skipNBytes(posicaoInicial);
+        comecarEm(posicaoInicial);
+    }
+
+    private void comecarEm(long posicaoInicial) {
+        inicioDados = posicaoInicial;
+        posicaoFimLinha = posicaoInicial;
+        bytesLidos = posicaoInicial;
+    }
+
+    @Override
+    public String[] proximaLinha() throws IOException {
+        while (!separarLinha()) {
+            if (fimCanal) return null;
+            lerMais();
+        }
+        posicaoFimLinha = inicioDados + posicao;
+
+        if (totalCampos < ColunasViagem.MINIMO_COLUNAS) return ColunasViagem.LINHA_CURTA;
+
+        String[] colunas = new String[ColunasViagem.TOTAL];
+        for (int posicaoProjetada = 0; posicaoProjetada < ColunasViagem.TOTAL; posicaoProjetada++) {
+            int coluna = ColunasViagem.colunaNoArquivo(posicaoProjetada, totalCampos);
+            if (coluna >= 0) colunas[posicaoProjetada] = texto(inicios[coluna], fins[coluna]);
+        }
+        return colunas;
+    }
+
+    /**
+     * Procura uma linha completa a partir de posicao e marca os campos dela.
+     * Retorna false se a linha ainda não terminou no buffer (é preciso ler mais).
+     */
+    private boolean separarLinha() {
+        if (posicao == limite) return false;
+
+        totalCampos = 0;
+        boolean entreAspas = false;
+        int inicioCampo = posicao;
+
+        for (int i = posicao; i < limite; i++) {
+            byte b = dados.get(i);
+            if (b == ASPAS) {
+                entreAspas = !entreAspas;
+            } else if (!entreAspas) {
+                if (b == SEPARADOR) {
+                    marcarCampo(inicioCampo, i);
+                    inicioCampo = i + 1;
+                } else if (b == '\n') {
+                    marcarCampo(inicioCampo, semRetorno(inicioCampo, i));
+                    posicao = i + 1;
+                    return true;
+                }
+            }
+        }
+
+        if (fimCanal) {
+            // Última linha sem quebra de linha no fim
+            marcarCampo(inicioCampo, semRetorno(inicioCampo, limite));
+            posicao = limite;
+            return true;
+        }
+        return false;
+    }
+
+    // Tira o \r de um fim de linha \r\n
+    private int semRetorno(int inicioCampo, int fim) {
+        return fim > inicioCampo && dados.get(fim - 1) == '\r' ? fim - 1 : fim;
+    }
+
+    private void marcarCampo(int inicio, int fim) {
+        if (totalCampos == inicios.length) {
+            inicios = Arrays.copyOf(inicios, totalCampos * 2);
+            fins = Arrays.copyOf(fins, totalCampos * 2);
+        }
+        inicios[totalCampos] = inicio;
+        fins[totalCampos] = fim;
+        totalCampos++;
+    }
+
+    /**
+     * Move a linha incompleta para o começo do buffer (crescendo se ela não couber) e lê mais do canal.
+     */
+    private void lerMais() throws IOException {
+        byte[] buffer = dados.array();
+        if (posicao > 0) {
+            System.arraycopy(buffer, posicao, buffer, 0, limite - posicao);
+            limite -= posicao;
+            inicioDados += posicao;
+            posicao = 0;
+        }
+        if (limite == buffer.length) {
+            dados = ByteBuffer.wrap(Arrays.copyOf(buffer, buffer.length * 2));
+        }
+
+        dados.limit(dados.capacity()).position(limite);
+        int lidos = canal.read(dados);
+        if (lidos < 0) {
+            fimCanal = true;
+        } else {
+            limite += lidos;
+            bytesLidos += lidos;
+        }
+    }
+
+    /**
+     * Valor do campo: ISO-8859-1 é um byte por caractere, então sem aspas é uma cópia direta.
+     */
+    private String texto(int inicio, int fim) {
+        int aspas = -1;
+        for (int i = inicio; i < fim; i++) {
+            if (dados.get(i) == ASPAS) {
+                aspas = i;
+                break;
+            }
+        }
+        if (aspas < 0) {
+            if (dados.hasArray()) {
+                return new String(dados.array(), dados.arrayOffset() + inicio, fim - inicio, StandardCharsets.ISO_8859_1);
+            }
+            if (copia.length < fim - inicio) copia = new byte[Math.max(fim - inicio, copia.length * 2)];
+            dados.get(inicio, copia, 0, fim - inicio);
+            return new String(copia, 0, fim - inicio, StandardCharsets.ISO_8859_1);
+        }
+
+        StringBuilder valor = new StringBuilder(fim - inicio);
+        for (int i = inicio; i < aspas; i++) valor.append((char) (dados.get(i) & 0xFF));
+        boolean entreAspas = false;
+        for (int i = aspas; i < fim; i++) {
+            byte b = dados.get(i);
+            if (b != ASPAS) {
+                valor.append((char) (b & 0xFF));
+            } else if (entreAspas && i + 1 < fim && dados.get(i + 1) == ASPAS) {
+                valor.append('"'); // "" dentro das aspas
+                i++;
+            } else {
+                entreAspas = !entreAspas;
+            }
+        }
+        return valor.toString();
+    }
+
+    @Override
+    public long getBytesLidos() {
+        return bytesLidos;
+    }
+
+    @Override
+    public long getPosicaoFimLinha() {
+        return posicaoFimLinha;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (canal != null) canal.close();
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.service;
+
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Leitura pelo OpenCSV (o leitor original): monta um String[] com todas as colunas
+ * de cada linha e depois separa as usadas.
+ */
+class LeitorCsvOpenCsv implements LeitorLinhasCsv {
+
+    private final CSVReader csvReader;
+    private final EntradaContada entradaContada;
+
+    LeitorCsvOpenCsv(String caminhoArquivo) throws IOException {
+        this(new FileInputStream(caminhoArquivo));
+    }
+
+    /**
+     * Lê do InputStream (ex: uma entrada de ZIP). Fechar o leitor fecha o InputStream.
+     */
+    LeitorCsvOpenCsv(InputStream entrada) {
+        this.entradaContada = new EntradaContada(entrada);
+        InputStreamReader reader = new InputStreamReader(entradaContada, StandardCharsets.ISO_8859_1);
+
+        // Configuramos o OpenCSV para entender que o separador é PONTO E VÍRGULA (;)
+        // Se não fizer isso, ele acha que é vírgula e quebra tudo!
+        this.csvReader = new CSVReaderBuilder(reader)
+                .withCSVParser(new CSVParserBuilder().withSeparator(';').build())
+                .build();
+    }
+
+    @Override
+    public String[] proximaLinha() throws IOException {
+        try {
+            String[] dados = csvReader.readNext();
+            return dados == null ? null : ColunasViagem.projetar(dados);
+        } catch (CsvValidationException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public long getBytesLidos() {
+        return entradaContada.lidos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        csvReader.close();
+    }
+
+    /**
+     * Conta os bytes que o OpenCSV já consumiu da entrada (para o progresso).
+     */
+    private static class EntradaContada extends FilterInputStream {
+        // Lido pela thread de progresso; só a thread de leitura escreve
+        volatile long lidos = 0;
+
+        EntradaContada(InputStream entrada) {
+            super(entrada);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) lidos++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] destino, int inicio, int tamanho) throws IOException {
+            int n = super.read(destino, inicio, tamanho);
+            if (n > 0) lidos += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long quantidade) throws IOException {
+            long n = super.skip(quantidade);
+            lidos += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Leitor do CSV que mapeia o arquivo na memória (FileChannel.map) e separa os trechos em paralelo,
+ * um por núcleo, com o LeitorCsvBytes. Para arquivos muito grandes, em que um único leitor não
+ * acompanha os transformadores.
+ * <p>
+ * O arquivo é dividido em trechos de ~TAMANHO_TRECHO bytes que começam sempre no início de uma linha.
+ * Um '\n' só termina a linha se estiver fora das aspas, e isso depende de todas as aspas antes dele.
+ * Por isso a divisão é feita em duas passadas:
+ * <ol>
+ *   <li>Em paralelo, cada pedaço bruto conta as suas aspas e guarda o primeiro '\n' que aparece
+ *       depois de um número par de aspas (contando do começo do pedaço) e o primeiro depois de um ímpar.</li>
+ *   <li>Somando as contagens dos pedaços anteriores sabe-se se o pedaço começa dentro ou fora das aspas,
+ *       e então qual dos dois '\n' é o verdadeiro fim de linha.</li>
+ * </ol>
+ * Os trechos são separados por um pool de threads, mas as linhas são entregues na ordem do arquivo
+ * (fila de Futures, como no PipelineImportacao). No máximo 2 trechos por thread ficam na memória.
+ */
+class LeitorCsvParalelo implements LeitorLinhasCsv {
+
+    private static final long TAMANHO_TRECHO = 4L * 1024 * 1024;
+
+    private final FileChannel canal;
+    private final ExecutorService separadores;
+    private final int maximoEmAndamento;
+
+    // Início de cada trecho; o último valor é o tamanho do arquivo
+    private final long[] limites;
+    private int proximoTrecho = 0;
+
+    private final Deque<Future<Trecho>> emAndamento = new ArrayDeque<>();
+    private Trecho trechoAtual = new Trecho(Collections.emptyList(), new long[0]);
+    private int posicaoTrecho = 0;
+    private long posicaoFimLinha;
+
+    // Trechos já entregues em ordem; os bytes lidos são o início do próximo (limites[trechosEntregues])
+    private int trechosEntregues = 0;
+    private volatile long bytesLidos = 0;
+
+    // Linhas de um trecho e a posição no arquivo logo depois de cada uma
+    private record Trecho(List<String[]> linhas, long[] fins) {
+    }
+
+    LeitorCsvParalelo(String caminhoArquivo, int numeroThreads) throws IOException {
+        this(caminhoArquivo, numeroThreads, 0);
+    }
+
+    /**
+     * Lê o arquivo a partir de posicaoInicial, que deve ser o início de uma linha
+     * (na retomada da importação); os bytes antes dela não são mapeados.
+     */
+    LeitorCsvParalelo(String caminhoArquivo, int numeroThreads, long posicaoInicial) throws IOException {
+        this.canal = FileChannel.open(Path.of(caminhoArquivo), StandardOpenOption.READ);
+        AtomicInteger contador = new AtomicInteger();
+        this.separadores = Executors.newFixedThreadPool(numeroThreads, tarefa -> {
+            Thread thread = new Thread(tarefa, "auditgov-leitor-trecho-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maximoEmAndamento = numeroThreads * 2;
+        try {
+            this.limites = calcularLimites(posicaoInicial);
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+        this.bytesLidos = posicaoInicial;
+        this.posicaoFimLinha = posicaoInicial;
+    }
+
+    @Override
+    public String[] proximaLinha() throws IOException {
+        while (posicaoTrecho == trechoAtual.linhas().size()) {
+            encherFila();
+            Future<Trecho> proximo = emAndamento.poll();
+            if (proximo == null) return null; // Fim do arquivo
+            trechoAtual = aguardar(proximo);
+            posicaoTrecho = 0;
+            bytesLidos = limites[++trechosEntregues];
+        }
+        posicaoFimLinha = trechoAtual.fins()[posicaoTrecho];
+        return trechoAtual.linhas().get(posicaoTrecho++);
+    }
+
+    private void encherFila() {
+        while (emAndamento.size() < maximoEmAndamento && proximoTrecho < limites.length - 1) {
+            long inicio = limites[proximoTrecho];
+            long fim = limites[proximoTrecho + 1];
+            proximoTrecho++;
+            emAndamento.add(separadores.submit(() -> separarTrecho(inicio, fim)));
+        }
+    }
+
+    /**
+     * Separa todas as linhas de um trecho (executado nas threads do pool).
+     */
+    private Trecho separarTrecho(long inicio, long fim) throws IOException {
+        MappedByteBuffer trecho = canal.map(FileChannel.MapMode.READ_ONLY, inicio, fim - inicio);
+        List<String[]> linhas = new ArrayList<>();
+        long[] fins = new long[1024];
+        LeitorCsvBytes leitor = new LeitorCsvBytes(trecho);
+        String[] linha;
+        while ((linha = leitor.proximaLinha()) != null) {
+            if (linhas.size() == fins.length) fins = Arrays.copyOf(fins, fins.length * 2);
+            fins[linhas.size()] = inicio + leitor.getPosicaoFimLinha(); // Posição relativa ao trecho
+            linhas.add(linha);
+        }
+        return new Trecho(linhas, fins);
+    }
+
+    /**
+     * Primeira passada: divide o arquivo, de posicaoInicial até o fim, em trechos que começam no início de uma linha.
+     */
+    private long[] calcularLimites(long posicaoInicial) throws IOException {
+        long tamanho = canal.size();
+        int pedacos = (int) Math.max(1, (tamanho - posicaoInicial + TAMANHO_TRECHO - 1) / TAMANHO_TRECHO);
+
+        List<Callable<long[]>> tarefas = new ArrayList<>(pedacos);
+        for (int i = 0; i < pedacos; i++) {
+            long inicio = posicaoInicial + i * TAMANHO_TRECHO;
+            long fim = Math.min(tamanho, inicio + TAMANHO_TRECHO);
+            tarefas.add(() -> contarAspas(inicio, fim));
+        }
+
+        List<long[]> contagens = new ArrayList<>(pedacos);
+        try {
+            for (Future<long[]> futuro : separadores.invokeAll(tarefas)) {
+                contagens.add(aguardar(futuro));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Leitura interrompida", e);
+        }
+
+        List<Long> inicios = new ArrayList<>();
+        inicios.add(posicaoInicial);
+        boolean dentroDasAspas = false; // No começo do pedaço atual
+        for (int i = 0; i < pedacos; i++) {
+            long[] contagem = contagens.get(i);
+            if (i > 0) {
+                // O primeiro '\n' fora das aspas termina a linha que veio do pedaço anterior
+                long quebra = dentroDasAspas ? contagem[2] : contagem[1];
+                if (quebra >= 0 && quebra + 1 > inicios.get(inicios.size() - 1) && quebra + 1 < tamanho) {
+                    inicios.add(quebra + 1);
+                }
+            }
+            if ((contagem[0] & 1) == 1) dentroDasAspas = !dentroDasAspas;
+        }
+
+        long[] limites = new long[inicios.size() + 1];
+        for (int i = 0; i < inicios.size(); i++) limites[i] = inicios.get(i);
+        limites[inicios.size()] = tamanho;
+        return limites;
+    }
+
+    /**
+     * [aspas no pedaço, primeiro '\n' depois de um número par de aspas, primeiro depois de um ímpar]
+     * (posições no arquivo; -1 se não houver).
+     */
+    private long[] contarAspas(long inicio, long fim) throws IOException {
+        MappedByteBuffer pedaco = canal.map(FileChannel.MapMode.READ_ONLY, inicio, fim - inicio);
+        long aspas = 0;
+        long quebraPar = -1;
+        long quebraImpar = -1;
+        int tamanho = (int) (fim - inicio);
+        for (int i = 0; i < tamanho; i++) {
+            byte b = pedaco.get(i);
+            if (b == '"') {
+                aspas++;
+            } else if (b == '\n') {
+                if ((aspas & 1) == 0) {
+                    if (quebraPar < 0) quebraPar = inicio + i;
+                } else if (quebraImpar < 0) {
+                    quebraImpar = inicio + i;
+                }
+            }
+        }
+        return new long[]{aspas, quebraPar, quebraImpar};
+    }
+
+    private static <T> T aguardar(Future<T> futuro) throws IOException {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Leitura interrompida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException erro) throw erro;
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    public long getBytesLidos() {
+        return bytesLidos;
+    }
+
+    @Override
+    public long getPosicaoFimLinha() {
+        return posicaoFimLinha;
+    }
+
+    @Override
+    public void close() throws IOException {
+        separadores.shutdownNow();
+        canal.close();
+    }
+}
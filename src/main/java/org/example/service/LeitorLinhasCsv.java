@@ -0,0 +1,35 @@
+package org.example.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Leitor do CSV de viagens usado pela importação.
+ * Implementações: LeitorCsvOpenCsv (OpenCSV), LeitorCsvBytes (NIO, sem montar a linha inteira)
+ * e LeitorCsvParalelo (arquivo mapeado, trechos separados em paralelo).
+ * <p>
+ * Cada linha vem só com as colunas usadas, na ordem de ColunasViagem.
+ */
+interface LeitorLinhasCsv extends Closeable {
+
+    /**
+     * Próxima linha do arquivo (colunas na ordem de ColunasViagem),
+     * ColunasViagem.LINHA_CURTA se ela tiver colunas de menos, ou null no fim do arquivo.
+     */
+    String[] proximaLinha() throws IOException;
+
+    /**
+     * Bytes do arquivo já consumidos, para o progresso da importação.
+     * Pode ser chamado de outra thread enquanto a leitura acontece.
+     */
+    long getBytesLidos();
+
+    /**
+     * Posição (em bytes) logo depois da última linha devolvida por proximaLinha(), para a retomada
+     * da importação abrir o leitor direto ali. Numa entrada de ZIP é a posição no conteúdo descompactado.
+     * -1 se o leitor não souber a posição exata (OpenCSV). Só chamado pela thread de leitura.
+     */
+    default long getPosicaoFimLinha() {
+        return -1;
+    }
+}
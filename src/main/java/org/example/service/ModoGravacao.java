@@ -0,0 +1,26 @@
+package org.example.service;
+
+/**
+ * Como a importação grava as viagens na tabela fato.
+ */
+public enum ModoGravacao {
+
+    /** Um INSERT por linha (o modo original; mais lento). */
+    LINHA_A_LINHA("linha a linha"),
+
+    /** Um PreparedStatement reaproveitado com addBatch/executeBatch. */
+    LOTE("lote"),
+
+    /** Carregador nativo do MariaDB (LOAD DATA LOCAL INFILE) alimentado por um buffer em memória. */
+    LOAD_DATA("LOAD DATA LOCAL INFILE");
+
+    private final String descricao;
+
+    ModoGravacao(String descricao) {
+        this.descricao = descricao;
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+}
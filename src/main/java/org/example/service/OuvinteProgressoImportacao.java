@@ -0,0 +1,17 @@
+package org.example.service;
+
+import org.example.dto.ProgressoImportacaoDTO;
+
+/**
+ * Recebe o andamento da importação (ConfiguracaoImportacao.setOuvinteProgresso).
+ * <p>
+ * Chamado por uma thread da importação (não pela thread da interface gráfica), no máximo uma vez
+ * a cada ConfiguracaoImportacao.getIntervaloProgressoMs(), e uma última vez no fim, com
+ * isConcluida() = true. As chamadas nunca são simultâneas. Deve retornar rápido: quem atualiza
+ * a tela deve só repassar a fotografia para a thread da interface.
+ */
+@FunctionalInterface
+public interface OuvinteProgressoImportacao {
+
+    void aoAtualizar(ProgressoImportacaoDTO progresso);
+}
@@ -0,0 +1,816 @@
+package org.example.service;
+
+import org.example.database.ConexaoFactory;
+import org.example.database.DadosDAO;
+import org.example.database.GravadorViagens;
+import org.example.database.ResumoViagens;
+import org.example.dto.ProgressoImportacaoDTO;
+import org.example.model.Cidade;
+import org.example.model.Orgao;
+import org.example.model.Viagem;
+import org.example.util.TratamentoDados;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Motor da importação, dividido em etapas ligadas por filas limitadas:
+ * <pre>
+ *   leitor (1 thread) -> transformadores (N threads) -> sequenciador (1 thread) -> gravadores (M threads)
+ * </pre>
+ * - Leitor: lê o CSV em blocos (ver TipoLeitorCsv) e entrega cada bloco para um transformador.
+ *   No MAPEADO_PARALELO, os trechos do arquivo são separados por várias threads e chegam aqui em ordem.
+ * - Transformadores: aplicam a limpeza do TratamentoDados (ServicoImportacao.converterLinha).
+ * - Sequenciador: recebe os blocos NA ORDEM DO ARQUIVO e resolve os IDs de órgão/cidade
+ *   (um bloco inteiro por vez, com consultas e INSERTs de várias linhas).
+ *   Como só ele cria órgãos e cidades, os IDs gerados são os mesmos para qualquer N.
+ * - Gravadores: gravam as viagens (ver ModoGravacao), cada um na sua conexão, com commit por partes.
+ *   Um bloco que repete um id_processo de um bloco anterior ainda sem commit espera esse bloco ser
+ *   confirmado (ver registrarDependencias): a repetição sempre encontra a ocorrência anterior já no
+ *   banco, então o resultado e a linha do erro são os mesmos para qualquer número de gravadores.
+ *   Em cada commit, os totais das viagens gravadas são somados às tabelas de resumo
+ *   na mesma transação (ResumoViagens / DadosDAO.somarResumos), junto com o checkpoint do arquivo.
+ * <p>
+ * Retomada: o checkpoint (CheckpointImportacao) guarda quantas linhas do começo do arquivo já foram
+ * confirmadas e a posição (em bytes) logo depois delas. Numa nova importação do mesmo arquivo o leitor
+ * começa direto nessa posição (ou, com o OpenCSV, lê e descarta essas linhas), e se o banco
+ * já tinha viagens cada bloco é conferido antes de gravar: processos que já estão no banco
+ * são pulados. Assim a importação pode ser repetida ou retomada sem duplicar nada.
+ * Na importação delta (config.isImportacaoDelta()), a viagem que já está no banco é comparada pelo
+ * hash do conteúdo e regravada só se mudou; o resto do bloco segue como viagens novas.
+ * <p>
+ * Cancelamento (config.getCancelamento()): vira uma falha como qualquer outra, então todas as etapas
+ * param em até ESPERA_FILA_MS. Cada gravador desfaz (rollback) o que ainda não confirmou antes de
+ * devolver a conexão ao pool. Órgãos e cidades são confirmados na hora (autocommit), então o cache
+ * do GestaoEntidadesUnicas só guarda IDs que existem no banco, com ou sem cancelamento.
+ * <p>
+ * Se houver um OuvinteProgressoImportacao na configuração, uma thread à parte tira uma fotografia
+ * dos contadores a cada config.getIntervaloProgressoMs() e entrega ao ouvinte (ver informarProgresso).
+ * <p>
+ * A ordem é garantida pela fila de Futures: o leitor coloca o Future de cada bloco na fila
+ * na ordem de leitura e o sequenciador espera cada um na mesma ordem.
+ * As filas são limitadas, então a memória não depende do tamanho do arquivo.
+ */
+class PipelineImportacao {
+
+    private static final long ESPERA_FILA_MS = 100;
+
+    // Tempo máximo esperando os gravadores desfazerem o que não confirmaram, depois de uma falha
+    private static final long ESPERA_GRAVADORES_MS = 30_000;
+
+    // A cada quantas linhas a retomada (que só pula linhas) confere se a importação foi cancelada
+    private static final int LINHAS_ENTRE_VERIFICACOES = 4096;
+
+    private final String caminhoArquivo;
+    private final ConfiguracaoImportacao config;
+    private final DadosDAO dao = new DadosDAO();
+    private final GestaoEntidadesUnicas gestaoEntidades = new GestaoEntidadesUnicas();
+    private final RegistroErros erros = new RegistroErros();
+
+    // Primeira falha fatal de qualquer etapa; quando preenchida, todas as etapas param
+    private final AtomicReference<Throwable> falha = new AtomicReference<>();
+
+    private final LongAdder confirmadas = new LongAdder();
+
+    // Viagens puladas porque o processo já estava no banco (no delta: já estava e não mudou)
+    private final LongAdder jaExistentes = new LongAdder();
+
+    // Importação delta: viagens regravadas porque mudaram
+    private final LongAdder atualizadas = new LongAdder();
+
+    // Grupos dos resumos que perderam valores com as viagens regravadas: mínimo e máximo a refazer no fim
+    private final Set<Integer> orgaosComRemocao = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> cidadesComRemocao = ConcurrentHashMap.newKeySet();
+
+    // --- Progresso (lidos pela thread de progresso) ---
+    private volatile LeitorLinhasCsv leitorAtual;
+    private volatile long linhasLidas = 0; // Só o leitor escreve
+    private long bytesTotais = -1;
+    private long inicioNanos;
+
+    // Preenchidos antes de iniciar as threads (prepararRetomada)
+    private CheckpointImportacao checkpoint; // null se config.isRetomarImportacao() = false
+    private long linhasPuladas = 0;          // Confirmadas numa importação anterior do mesmo arquivo
+    private long posicaoRetomada = -1;       // Posição logo depois delas no arquivo (-1 se desconhecida)
+    private boolean filtrarExistentes;       // O banco já tinha viagens: confere cada bloco antes de gravar
+
+    // Algum gravador não conseguiu manter os resumos exatos; recalcula no fim
+    private final AtomicBoolean resumosInexatos = new AtomicBoolean(false);
+
+    // --- Ordem entre blocos com o mesmo id_processo (ver registrarDependencias) ---
+    // id_processo -> sequência do último bloco ainda sem commit que o contém
+    private final Map<String, Long> processosSemCommit = new ConcurrentHashMap<>();
+    // Sequência -> processos do bloco, de cada bloco entregue aos gravadores e ainda sem commit
+    private final Map<Long, List<String>> blocosSemCommit = new ConcurrentHashMap<>();
+    // Blocos sem commit que algum gravador está esperando: quem os tem confirma logo
+    private final Set<Long> blocosAguardados = ConcurrentHashMap.newKeySet();
+    private final Object monitorConfirmacao = new Object();
+
+    private final BlockingQueue<Future<BlocoImportacao>> filaTransformacao;
+    private final BlockingQueue<BlocoImportacao> filaGravacao;
+
+    PipelineImportacao(String caminhoArquivo, ConfiguracaoImportacao config) {
+        this.caminhoArquivo = caminhoArquivo;
+        this.config = config;
+        this.filaTransformacao = new ArrayBlockingQueue<>(config.getCapacidadeFila());
+        this.filaGravacao = new ArrayBlockingQueue<>(config.getCapacidadeFila());
+    }
+
+    /**
+     * Executa a importação e retorna quantas viagens foram confirmadas no banco.
+     */
+    long executar() throws Exception {
+        inicioNanos = System.nanoTime();
+        long datasInvalidasAntes = TratamentoDados.getTotalDatasInvalidas();
+        ScheduledExecutorService progresso = null;
+
+        CancelamentoImportacao cancelamento = config.getCancelamento();
+        if (cancelamento != null) {
+            // O número de viagens confirmadas é preenchido no fim (ver abaixo)
+            cancelamento.aoCancelar(() -> falhar(new ImportacaoCanceladaException(0)));
+        }
+
+        ExecutorService transformadores = Executors.newFixedThreadPool(
+                config.getNumeroTransformadores(), fabricaThreads("auditgov-transformador"));
+
+        Thread leitor = new Thread(() -> ler(transformadores), "auditgov-leitor-csv");
+        leitor.setDaemon(true);
+
+        List<Thread> gravadores = new ArrayList<>();
+        for (int i = 0; i < config.getNumeroEscritores(); i++) {
+            Thread gravador = new Thread(this::gravar, "auditgov-gravador-" + (i + 1));
+            gravador.setDaemon(true);
+            gravadores.add(gravador);
+        }
+
+        // Órgãos e cidades são confirmados na hora (autocommit), para que os gravadores,
+        // em outras conexões, já enxerguem as chaves estrangeiras.
+        try (Connection connDimensoes = ConexaoFactory.getConexaoImportacao(config.isReescreverLotes())) {
+            connDimensoes.setAutoCommit(true);
+
+            if (!prepararRetomada(connDimensoes)) return 0;
+
+            progresso = iniciarProgresso();
+            leitor.start();
+            gravadores.forEach(Thread::start);
+
+            if (config.isPreCarregarDimensoes()) {
+                // Enquanto isso, leitor e transformadores já vão adiantando os primeiros blocos
+                gestaoEntidades.preCarregar(connDimensoes);
+            }
+
+            sequenciar(connDimensoes);
+
+            for (Thread gravador : gravadores) {
+                gravador.join();
+            }
+
+            if (checkpoint != null && falha.get() == null) {
+                CheckpointImportacao.Prefixo prefixo = checkpoint.getPrefixo();
+                dao.salvarCheckpoint(connDimensoes, checkpoint.getHashArquivo(), checkpoint.getNomeArquivo(),
+                        prefixo.linhas(), prefixo.posicao(), true);
+            }
+        } catch (Exception e) {
+            falhar(e);
+        } finally {
+            leitor.interrupt();
+            transformadores.shutdownNow();
+            gravadores.forEach(Thread::interrupt);
+            aguardarGravadores(gravadores);
+            pararProgresso(progresso);
+        }
+
+        if (resumosInexatos.get()) {
+            recalcularResumos();
+        } else if (!orgaosComRemocao.isEmpty() || !cidadesComRemocao.isEmpty()) {
+            recalcularExtremosResumos();
+        }
+
+        erros.imprimir();
+
+        if (config.isImportacaoDelta()) {
+            System.out.println("Delta: " + atualizadas.sum() + " viagem(ns) alterada(s) regravada(s), "
+                    + jaExistentes.sum() + " sem alteração pulada(s).");
+        } else if (jaExistentes.sum() > 0) {
+            System.out.println(jaExistentes.sum() + " viagem(ns) já estava(m) no banco e foi(ram) pulada(s).");
+        }
+
+        long datasInvalidas = TratamentoDados.getTotalDatasInvalidas() - datasInvalidasAntes;
+        if (datasInvalidas > 0) {
+            System.err.println("Aviso: " + datasInvalidas + " data(s) inválida(s) substituída(s) pela data atual.");
+        }
+
+        if (progresso != null) informarProgresso(true);
+
+        Throwable erro = falha.get();
+        if (erro instanceof ImportacaoCanceladaException) {
+            ImportacaoCanceladaException cancelada = new ImportacaoCanceladaException(confirmadas.sum());
+            System.err.println("\n" + cancelada.getMessage());
+            throw cancelada;
+        }
+        if (erro != null) {
+            if (confirmadas.sum() > 0) {
+                System.err.println("\nImportação interrompida. "
+                        + confirmadas.sum() + " viagens já haviam sido confirmadas.");
+            }
+            if (erro instanceof Exception) throw (Exception) erro;
+            throw new RuntimeException(erro);
+        }
+        return confirmadas.sum();
+    }
+
+    /**
+     * Confere o que já foi importado deste arquivo (ver CheckpointImportacao.identificarArquivo)
+     * e se o banco já tem viagens.
+     * Retorna false se o arquivo já foi importado por completo: não há nada a fazer.
+     */
+    private boolean prepararRetomada(Connection conn) throws SQLException, IOException {
+        filtrarExistentes = dao.existeViagem(conn);
+        if (!config.isRetomarImportacao()) return true;
+
+        String hash = CheckpointImportacao.identificarArquivo(caminhoArquivo);
+        CheckpointImportacao.Prefixo jaConfirmado = new CheckpointImportacao.Prefixo(0, -1);
+        Object[] anterior = dao.buscarCheckpoint(conn, hash);
+        if (anterior != null) {
+            if (!filtrarExistentes) {
+                // As viagens foram apagadas depois daquela importação: começa do zero
+                dao.apagarCheckpoint(conn, hash);
+            } else if ((Boolean) anterior[1]) {
+                System.out.println("Este arquivo já foi importado por completo (" + anterior[0] + " linhas). Nada a fazer.");
+                return false;
+            } else {
+                jaConfirmado = new CheckpointImportacao.Prefixo((Long) anterior[0],
+                        anterior[2] != null ? (Long) anterior[2] : -1);
+                System.out.println("Retomando a importação: " + jaConfirmado.linhas()
+                        + " linhas já confirmadas anteriormente serão puladas.");
+            }
+        }
+
+        checkpoint = new CheckpointImportacao(hash, Path.of(caminhoArquivo).getFileName().toString(), jaConfirmado);
+        linhasPuladas = jaConfirmado.linhas();
+        posicaoRetomada = jaConfirmado.linhas() > 0 ? jaConfirmado.posicao() : -1;
+        return true;
+    }
+
+    // --- ETAPA 1: LEITURA ---
+
+    private void ler(ExecutorService transformadores) {
+        // Retomada com a posição conhecida: o leitor já começa depois das linhas confirmadas (e do cabeçalho)
+        boolean comecarNaPosicao = posicaoRetomada > 0 && config.getTipoLeitorCsv() != TipoLeitorCsv.OPENCSV;
+        try (LeitorLinhasCsv leitor = abrirLeitor(comecarNaPosicao ? posicaoRetomada : 0)) {
+            leitorAtual = leitor;
+
+            if (!comecarNaPosicao) {
+                //Pula o cabeçalho
+                leitor.proximaLinha();
+
+                // Retomada: pula as linhas já confirmadas, sem transformar nem gravar
+                for (long i = 0; i < linhasPuladas; i++) {
+                    if (leitor.proximaLinha() == null) break;
+                    if (i % LINHAS_ENTRE_VERIFICACOES == 0 && falha.get() != null) return;
+                }
+            }
+
+            int tamanhoBloco = config.getTamanhoBlocoLeitura();
+            long sequencia = 0;
+            int proximaLinha = 2 + (int) linhasPuladas;
+            List<String[]> linhas = new ArrayList<>(tamanhoBloco);
+            String[] dados;
+
+            while ((dados = leitor.proximaLinha()) != null) {
+                linhas.add(dados);
+                if (linhas.size() >= tamanhoBloco) {
+                    if (!enviarParaTransformacao(transformadores, new BlocoImportacao(sequencia++, proximaLinha, linhas,
+                            leitor.getPosicaoFimLinha()))) return;
+                    linhasLidas += linhas.size();
+                    proximaLinha += linhas.size();
+                    linhas = new ArrayList<>(tamanhoBloco);
+                }
+            }
+            if (!linhas.isEmpty()) {
+                if (!enviarParaTransformacao(transformadores, new BlocoImportacao(sequencia, proximaLinha, linhas,
+                        leitor.getPosicaoFimLinha()))) return;
+                linhasLidas += linhas.size();
+            }
+
+            colocar(filaTransformacao, CompletableFuture.completedFuture(BlocoImportacao.FIM));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            falhar(e);
+        }
+    }
+
+    /**
+     * @param posicaoInicial Onde começar a ler (0 = do começo); maior que 0 só com os leitores de bytes.
+     */
+    private LeitorLinhasCsv abrirLeitor(long posicaoInicial) throws IOException {
+        if (ArquivoZipViagens.ehZip(caminhoArquivo)) {
+            // Lê a entrada de viagens direto do ZIP, descompactando enquanto lê
+            InputStream entrada = ArquivoZipViagens.abrirEntradaViagens(caminhoArquivo);
+            if (config.getTipoLeitorCsv() == TipoLeitorCsv.OPENCSV) {
+                return new LeitorCsvOpenCsv(entrada);
+            }
+            // Um ZIP não pode ser mapeado na memória: MAPEADO_PARALELO também usa o leitor de bytes
+            try {
+                return new LeitorCsvBytes(entrada, posicaoInicial);
+            } catch (IOException | RuntimeException e) {
+                entrada.close();
+                throw e;
+            }
+        }
+        return switch (config.getTipoLeitorCsv()) {
+            case BYTES -> new LeitorCsvBytes(caminhoArquivo, posicaoInicial);
+            case OPENCSV -> new LeitorCsvOpenCsv(caminhoArquivo);
+            case MAPEADO_PARALELO -> new LeitorCsvParalelo(caminhoArquivo, config.getNumeroThreadsLeitura(), posicaoInicial);
+        };
+    }
+
+    private boolean enviarParaTransformacao(ExecutorService transformadores, BlocoImportacao bloco) throws InterruptedException {
+        return colocar(filaTransformacao, transformadores.submit(() -> transformar(bloco)));
+    }
+
+    // --- ETAPA 2: TRANSFORMAÇÃO (em paralelo) ---
+
+    private BlocoImportacao transformar(BlocoImportacao bloco) {
+        int linha = bloco.primeiraLinha;
+        for (String[] dados : bloco.linhasBrutas) {
+            try {
+                Viagem viagem = ServicoImportacao.converterColunas(dados);
+                if (viagem != null) bloco.adicionar(viagem, linha);
+            } catch (Exception e) {
+                erros.registrar(linha, e.getMessage());
+            }
+            linha++;
+        }
+        bloco.linhasBrutas = null;
+        return bloco;
+    }
+
+    // --- ETAPA 3: SEQUENCIAMENTO (resolve órgão e cidade na ordem do arquivo) ---
+
+    private void sequenciar(Connection connDimensoes) throws InterruptedException, ExecutionException {
+        Future<BlocoImportacao> futuro;
+        while ((futuro = retirar(filaTransformacao)) != null) {
+            BlocoImportacao bloco = futuro.get();
+            if (bloco == BlocoImportacao.FIM) break;
+
+            resolverEntidades(connDimensoes, bloco);
+            registrarDependencias(bloco);
+
+            if (!colocar(filaGravacao, bloco)) return;
+        }
+
+        // Um aviso de fim para cada gravador
+        for (int i = 0; i < config.getNumeroEscritores(); i++) {
+            if (!colocar(filaGravacao, BlocoImportacao.FIM)) return;
+        }
+    }
+
+    /**
+     * Anota no bloco os blocos anteriores, ainda sem commit, que têm algum id_processo dele.
+     * <p>
+     * Com vários gravadores, dois blocos com o mesmo processo seriam conferidos (removerExistentes,
+     * separarAlteradas) e gravados ao mesmo tempo, e qual das duas linhas fica no banco (e qual cai
+     * na chave primária) dependeria de qual gravador chega antes. Esperando o bloco anterior ser
+     * confirmado, a repetição sempre encontra a primeira ocorrência já no banco, como se houvesse
+     * um gravador só. Só os blocos com repetição esperam; os outros seguem em paralelo.
+     */
+    private void registrarDependencias(BlocoImportacao bloco) {
+        List<String> processos = idsProcesso(bloco);
+        Set<Long> dependencias = new HashSet<>();
+        for (String processo : processos) {
+            Long anterior = processosSemCommit.put(processo, bloco.sequencia);
+            if (anterior != null && anterior != bloco.sequencia) dependencias.add(anterior);
+        }
+        blocosSemCommit.put(bloco.sequencia, processos);
+        if (!dependencias.isEmpty()) bloco.dependencias = new ArrayList<>(dependencias);
+    }
+
+    /**
+     * Resolve órgãos e cidades do bloco inteiro de uma vez (uma consulta e um INSERT por tabela).
+     * Se o lote falhar, resolve linha a linha, para que só as linhas com problema fiquem de fora.
+     */
+    private void resolverEntidades(Connection connDimensoes, BlocoImportacao bloco) {
+        List<Orgao> orgaos = new ArrayList<>(bloco.tamanho());
+        List<Cidade> cidades = new ArrayList<>(bloco.tamanho());
+        for (Viagem viagem : bloco.viagens) {
+            orgaos.add(viagem.getOrgao());
+            cidades.add(viagem.getDestino());
+        }
+
+        try {
+            gestaoEntidades.resolverOrgaos(connDimensoes, orgaos);
+            gestaoEntidades.resolverCidades(connDimensoes, cidades);
+            return;
+        } catch (SQLException e) {
+            // Cai para a resolução linha a linha abaixo
+        }
+
+        for (int i = 0; i < bloco.tamanho(); i++) {
+            Viagem viagem = bloco.viagens.get(i);
+            try {
+                viagem.getOrgao().setId(gestaoEntidades.salvarOuRecuperarOrgao(connDimensoes, viagem.getOrgao()));
+                viagem.getDestino().setId(gestaoEntidades.salvarOuRecuperarCidade(connDimensoes, viagem.getDestino()));
+            } catch (SQLException e) {
+                erros.registrar(bloco.linhas.get(i), e.getMessage());
+                bloco.viagens.set(i, null); // Não grava a viagem sem as chaves
+            }
+        }
+    }
+
+    // --- ETAPA 4: GRAVAÇÃO ---
+
+    private void gravar() {
+        try (Connection conn = ConexaoFactory.getConexaoImportacao(config.isReescreverLotes())) {
+            conn.setAutoCommit(false); // Performance: Desliga salvamento automático
+
+            boolean concluido = false;
+            ResumoViagens resumo = new ResumoViagens();
+            // Blocos gravados desde o último commit, por sequência, para o checkpoint
+            Map<Long, CheckpointImportacao.Bloco> blocosPendentes = new HashMap<>();
+            try (GravadorViagens gravador = abrirGravador(conn, resumo)) {
+                int pendentesCommit = 0;
+                BlocoImportacao bloco;
+                while ((bloco = retirar(filaGravacao)) != null && bloco != BlocoImportacao.FIM) {
+                    if (temDependenciaSemCommit(bloco)) {
+                        // Confirma antes de esperar: o bloco esperado pode ser deste gravador, e
+                        // quem espera sem nada pendente não trava os outros gravadores
+                        if (!blocosPendentes.isEmpty()) {
+                            confirmar(conn, gravador, resumo, blocosPendentes);
+                            pendentesCommit = 0;
+                        }
+                        if (!aguardarDependencias(bloco)) break;
+                    }
+
+                    if (filtrarExistentes) {
+                        // Contam para o commit, para que o checkpoint avance mesmo num trecho só de repetidas
+                        pendentesCommit += config.isImportacaoDelta()
+                                ? separarAlteradas(conn, bloco, resumo)
+                                : removerExistentes(conn, bloco);
+                    }
+                    blocosPendentes.put(bloco.sequencia, new CheckpointImportacao.Bloco(bloco.totalLinhas, bloco.posicaoFim));
+
+                    for (int i = 0; i < bloco.tamanho(); i++) {
+                        Viagem viagem = bloco.viagens.get(i);
+                        if (viagem == null) continue;
+
+                        gravador.adicionar(viagem, bloco.linhas.get(i));
+                        pendentesCommit++;
+                    }
+
+                    // Commit por partes: mantém o undo log do banco pequeno em arquivos enormes.
+                    // Antes disso, se outro gravador estiver esperando um bloco deste.
+                    if (pendentesCommit >= config.getTamanhoCommit() || algumAguardado(blocosPendentes)) {
+                        confirmar(conn, gravador, resumo, blocosPendentes);
+                        pendentesCommit = 0;
+                    }
+                }
+
+                if (bloco == BlocoImportacao.FIM) {
+                    confirmar(conn, gravador, resumo, blocosPendentes); //Salva o que sobrou
+                    concluido = true;
+                }
+            } finally {
+                // Cancelada ou falhou: desfaz o que não teve commit antes de devolver a conexão ao pool
+                if (!concluido) desfazer(conn);
+                if (resumo.isInexato()) resumosInexatos.set(true);
+                orgaosComRemocao.addAll(resumo.getOrgaosComRemocao());
+                cidadesComRemocao.addAll(resumo.getCidadesComRemocao());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            falhar(e);
+        }
+    }
+
+    private boolean temDependenciaSemCommit(BlocoImportacao bloco) {
+        for (Long dependencia : bloco.dependencias) {
+            if (blocosSemCommit.containsKey(dependencia)) return true;
+        }
+        return false;
+    }
+
+    private boolean algumAguardado(Map<Long, CheckpointImportacao.Bloco> blocosPendentes) {
+        if (blocosAguardados.isEmpty()) return false;
+        for (Long sequencia : blocosPendentes.keySet()) {
+            if (blocosAguardados.contains(sequencia)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Espera os blocos dos quais o bloco depende serem confirmados por outros gravadores.
+     * Retorna false se outra etapa falhou enquanto esperava.
+     */
+    private boolean aguardarDependencias(BlocoImportacao bloco) throws InterruptedException {
+        synchronized (monitorConfirmacao) {
+            for (Long dependencia : bloco.dependencias) {
+                if (!blocosSemCommit.containsKey(dependencia)) continue;
+                blocosAguardados.add(dependencia);
+                while (blocosSemCommit.containsKey(dependencia)) {
+                    if (falha.get() != null) return false;
+                    monitorConfirmacao.wait(ESPERA_FILA_MS);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Depois do commit: os blocos deixam de segurar os seus processos e quem os esperava segue.
+     */
+    private void liberarConfirmados(Map<Long, CheckpointImportacao.Bloco> blocos) {
+        for (Long sequencia : blocos.keySet()) {
+            List<String> processos = blocosSemCommit.get(sequencia);
+            if (processos != null) {
+                for (String processo : processos) processosSemCommit.remove(processo, sequencia);
+            }
+            blocosSemCommit.remove(sequencia);
+            blocosAguardados.remove(sequencia);
+        }
+        synchronized (monitorConfirmacao) {
+            monitorConfirmacao.notifyAll();
+        }
+    }
+
+    private static void desfazer(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            // A conexão pode já estar quebrada; o servidor desfaz a transação quando ela fecha
+        }
+    }
+
+    /**
+     * Espera os gravadores terminarem (depois de uma falha, eles ainda podem estar desfazendo
+     * a transação), para que todas as conexões tenham voltado ao pool quando a importação retornar.
+     */
+    private static void aguardarGravadores(List<Thread> gravadores) {
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ESPERA_GRAVADORES_MS);
+        try {
+            for (Thread gravador : gravadores) {
+                long restanteMs = TimeUnit.NANOSECONDS.toMillis(limite - System.nanoTime());
+                if (restanteMs <= 0) break;
+                gravador.join(restanteMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private GravadorViagens abrirGravador(Connection conn, ResumoViagens resumo) throws SQLException {
+        return switch (config.getModoGravacao()) {
+            case LOTE -> dao.abrirLoteViagens(conn, config.getTamanhoLote(), erros::registrar, resumo);
+            case LOAD_DATA -> dao.abrirCargaLoadData(conn, erros::registrar, resumo);
+            case LINHA_A_LINHA -> dao.abrirInsercaoLinhaALinha(conn, erros::registrar, resumo);
+        };
+    }
+
+    /**
+     * Tira do bloco as viagens cujo processo já está no banco (importação repetida ou retomada).
+     * Retorna quantas foram tiradas.
+     */
+    private int removerExistentes(Connection conn, BlocoImportacao bloco) throws SQLException {
+        List<String> idsProcesso = idsProcesso(bloco);
+        if (idsProcesso.isEmpty()) return 0;
+
+        Set<String> existentes = new HashSet<>(dao.buscarProcessosExistentes(conn, idsProcesso));
+        if (existentes.isEmpty()) return 0;
+
+        int removidas = 0;
+        for (int i = 0; i < bloco.tamanho(); i++) {
+            Viagem viagem = bloco.viagens.get(i);
+            if (viagem != null && existentes.contains(viagem.getIdProcesso())) {
+                bloco.viagens.set(i, null);
+                removidas++;
+            }
+        }
+        jaExistentes.add(removidas);
+        return removidas;
+    }
+
+    /**
+     * Importação delta: compara cada viagem do bloco com a que já está no banco (hash_conteudo).
+     * As iguais saem do bloco; as alteradas saem do bloco e são regravadas aqui, com UPDATE,
+     * trocando nos resumos o valor antigo pelo novo. Só as novas seguem para o gravador.
+     * Retorna quantas saíram do bloco.
+     */
+    private int separarAlteradas(Connection conn, BlocoImportacao bloco, ResumoViagens resumo) throws SQLException {
+        List<String> idsProcesso = idsProcesso(bloco);
+        if (idsProcesso.isEmpty()) return 0;
+
+        // id_processo -> [id_processo, hash_conteudo, fk_orgao, fk_destino, valor_total]
+        Map<String, Object[]> existentes = new HashMap<>();
+        for (Object[] impressao : dao.buscarImpressoesViagens(conn, idsProcesso)) {
+            existentes.put((String) impressao[0], impressao);
+        }
+        if (existentes.isEmpty()) return 0;
+
+        List<Viagem> alteradas = new ArrayList<>();
+        int removidas = 0;
+        for (int i = 0; i < bloco.tamanho(); i++) {
+            Viagem viagem = bloco.viagens.get(i);
+            if (viagem == null) continue;
+
+            // remove: um processo repetido no mesmo bloco segue como novo e cai na chave primária, como antes
+            Object[] impressao = existentes.remove(viagem.getIdProcesso());
+            if (impressao == null) continue; // Nova
+
+            bloco.viagens.set(i, null);
+            removidas++;
+            if (Objects.equals(impressao[1], viagem.getHashConteudo())) {
+                jaExistentes.increment();
+                continue;
+            }
+
+            alteradas.add(viagem);
+            resumo.subtrair((Integer) impressao[2], (Integer) impressao[3], (BigDecimal) impressao[4]);
+            resumo.somar(viagem);
+        }
+
+        dao.atualizarViagens(conn, alteradas);
+        atualizadas.add(alteradas.size());
+        return removidas;
+    }
+
+    private static List<String> idsProcesso(BlocoImportacao bloco) {
+        List<String> idsProcesso = new ArrayList<>(bloco.tamanho());
+        for (Viagem viagem : bloco.viagens) {
+            if (viagem != null && viagem.getIdProcesso() != null) idsProcesso.add(viagem.getIdProcesso());
+        }
+        return idsProcesso;
+    }
+
+    /**
+     * Envia o que estiver pendente no gravador, soma os totais nos resumos, avança o checkpoint
+     * e dá commit. As linhas gravadas desde o último commit são somadas às confirmadas.
+     */
+    private void confirmar(Connection conn, GravadorViagens gravador, ResumoViagens resumo,
+                           Map<Long, CheckpointImportacao.Bloco> blocos) throws SQLException {
+        int gravadas = gravador.executar();
+        dao.somarResumos(conn, resumo);
+        if (checkpoint != null) {
+            // Só grava se o prefixo contíguo avançar (se um bloco anterior ainda não foi confirmado,
+            // outro gravador avança o checkpoint depois), evitando travar a linha à toa
+            CheckpointImportacao.Prefixo prefixo = checkpoint.prefixoConfirmadoCom(blocos);
+            if (prefixo.linhas() > checkpoint.getPrefixo().linhas()) {
+                dao.salvarCheckpoint(conn, checkpoint.getHashArquivo(), checkpoint.getNomeArquivo(),
+                        prefixo.linhas(), prefixo.posicao(), false);
+            }
+        }
+        conn.commit();
+        ServicoImportacao.avancarVersaoDados(); // Invalida o cache das consultas da tela
+        resumo.limpar();
+        confirmadas.add(gravadas);
+        if (checkpoint != null) checkpoint.marcarConfirmados(blocos);
+        liberarConfirmados(blocos);
+        blocos.clear();
+    }
+
+    /**
+     * Refaz os resumos a partir da tabela viagem, numa transação só.
+     * Só acontece quando algum gravador não soube quais linhas entraram (ex: LOAD DATA com recusas).
+     */
+    private void recalcularResumos() {
+        System.out.println("\nRecalculando os resumos a partir da tabela viagem...");
+        try {
+            ServicoImportacao.recalcularResumos();
+        } catch (SQLException e) {
+            falhar(e);
+        }
+    }
+
+    /**
+     * Refaz o mínimo e o máximo dos grupos que perderam valores com as viagens regravadas pelo delta.
+     */
+    private void recalcularExtremosResumos() {
+        try {
+            ServicoImportacao.recalcularExtremosResumos(orgaosComRemocao, cidadesComRemocao);
+        } catch (SQLException e) {
+            falhar(e);
+        }
+    }
+
+    // --- PROGRESSO ---
+
+    private ScheduledExecutorService iniciarProgresso() throws IOException {
+        if (config.getOuvinteProgresso() == null) return null;
+
+        bytesTotais = ArquivoZipViagens.ehZip(caminhoArquivo)
+                ? ArquivoZipViagens.tamanhoEntradaViagens(caminhoArquivo)
+                : Files.size(Path.of(caminhoArquivo));
+
+        ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(fabricaThreads("auditgov-progresso"));
+        long intervalo = config.getIntervaloProgressoMs();
+        agendador.scheduleAtFixedRate(() -> informarProgresso(false), intervalo, intervalo, TimeUnit.MILLISECONDS);
+        return agendador;
+    }
+
+    private void pararProgresso(ScheduledExecutorService agendador) {
+        if (agendador == null) return;
+        agendador.shutdownNow();
+        try {
+            // Garante que a última chamada (informarProgresso(true)) não corra junto com uma agendada
+            agendador.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Tira uma fotografia dos contadores e entrega ao ouvinte.
+     * O tempo restante é estimado pelo ritmo de leitura do arquivo: as filas entre as etapas são
+     * limitadas, então a leitura anda só um pouco à frente da gravação.
+     */
+    private void informarProgresso(boolean concluida) {
+        LeitorLinhasCsv leitor = leitorAtual;
+        long bytesLidos = leitor != null ? leitor.getBytesLidos() : 0;
+        long linhasConfirmadas = confirmadas.sum();
+        double segundos = (System.nanoTime() - inicioNanos) / 1_000_000_000.0;
+        double linhasPorSegundo = segundos > 0 ? linhasConfirmadas / segundos : 0;
+
+        double segundosRestantes = -1;
+        if (concluida) {
+            segundosRestantes = 0;
+        } else if (bytesTotais > 0 && bytesLidos > 0) {
+            segundosRestantes = Math.max(0, bytesTotais - bytesLidos) * segundos / bytesLidos;
+        }
+
+        try {
+            config.getOuvinteProgresso().aoAtualizar(new ProgressoImportacaoDTO(bytesLidos, bytesTotais, linhasLidas,
+                    erros.getTotal(), linhasConfirmadas, segundos, linhasPorSegundo, segundosRestantes, concluida));
+        } catch (RuntimeException e) {
+            // Um erro no ouvinte não interrompe a importação
+            System.err.println("Erro no ouvinte de progresso: " + e.getMessage());
+        }
+    }
+
+    // --- FILAS ---
+
+    /**
+     * Coloca o item na fila, esperando se ela estiver cheia (backpressure).
+     * Retorna false se outra etapa falhou enquanto esperava.
+     */
+    private <T> boolean colocar(BlockingQueue<T> fila, T item) throws InterruptedException {
+        while (falha.get() == null) {
+            if (fila.offer(item, ESPERA_FILA_MS, TimeUnit.MILLISECONDS)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Retira o próximo item da fila, esperando se ela estiver vazia.
+     * Retorna null se outra etapa falhou enquanto esperava.
+     */
+    private <T> T retirar(BlockingQueue<T> fila) throws InterruptedException {
+        while (falha.get() == null) {
+            T item = fila.poll(ESPERA_FILA_MS, TimeUnit.MILLISECONDS);
+            if (item != null) return item;
+        }
+        return null;
+    }
+
+    private void falhar(Throwable erro) {
+        if (erro instanceof ExecutionException && erro.getCause() != null) {
+            erro = erro.getCause();
+        }
+        falha.compareAndSet(null, erro);
+    }
+
+    private static java.util.concurrent.ThreadFactory fabricaThreads(String prefixo) {
+        AtomicInteger contador = new AtomicInteger();
+        return tarefa -> {
+            Thread thread = new Thread(tarefa, prefixo + "-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
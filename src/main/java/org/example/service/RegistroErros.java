@@ -0,0 +1,44 @@
+package org.example.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Junta os erros de linha da importação, vindos de várias threads,
+ * e imprime em ordem de linha no fim. Assim a saída é a mesma para qualquer
+ * número de threads.
+ * <p>
+ * Guarda o detalhe só das primeiras LIMITE_DETALHES linhas com erro (as de menor número);
+ * as demais entram apenas na contagem.
+ */
+class RegistroErros {
+
+    private static final int LIMITE_DETALHES = 1000;
+
+    private final TreeMap<Integer, String> erros = new TreeMap<>();
+    private long total = 0;
+
+    synchronized void registrar(int linha, String mensagem) {
+        total++;
+        if (erros.size() < LIMITE_DETALHES) {
+            erros.put(linha, mensagem);
+        } else if (linha < erros.lastKey()) {
+            // Mantém sempre as linhas de menor número, não as que chegaram primeiro
+            erros.pollLastEntry();
+            erros.put(linha, mensagem);
+        }
+    }
+
+    synchronized long getTotal() {
+        return total;
+    }
+
+    synchronized void imprimir() {
+        for (Map.Entry<Integer, String> erro : erros.entrySet()) {
+            System.err.println("Erro na linha " + erro.getKey() + ": " + erro.getValue());
+        }
+        if (total > erros.size()) {
+            System.err.println("... e mais " + (total - erros.size()) + " linhas com erro.");
+        }
+    }
+}
@@ -2,13 +2,21 @@ package org.example.service;
 
 import org.example.database.ConexaoFactory;
 import org.example.database.DadosDAO;
+import org.example.dto.CursorViagemDTO;
 import org.example.dto.DestinoFrequenteDTO;
+import org.example.dto.FiltroViagensDTO;
+import org.example.dto.GrupoViagensDTO;
+import org.example.dto.MetricasCacheDTO;
 import org.example.dto.OrgaoGastadorDTO;
+import org.example.dto.PainelDTO;
 import org.example.model.Viagem;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,35 +27,138 @@ import java.util.Map;
  * - Construir objetos de domínio a partir dos dados brutos do DAO
  * - Aplicar regras de negócio (ordenação, formatação)
  * - Definir estrutura de dados de retorno
+ * <p>
+ * Os resultados ficam num cache (CacheConsultas) até a próxima importação confirmar viagens:
+ * trocar de aba ou atualizar a tela não volta ao banco. As listas e mapas devolvidos são
+ * compartilhados pelo cache e não podem ser alterados.
  */
 public class ServicoConsulta {
 
     private final DadosDAO dao;
+    private final CacheConsultas cache = new CacheConsultas();
+
+    // Cópia em colunas da tabela viagem para as análises; lida por carregarSnapshotViagens (null até a primeira leitura)
+    private volatile SnapshotViagens snapshot;
 
     public ServicoConsulta() {
         this.dao = new DadosDAO();
     }
 
+    /**
+     * Acertos, faltas, despejos e invalidações do cache de consultas.
+     */
+    public MetricasCacheDTO getMetricasCache() {
+        return cache.fotografar();
+    }
+
+    /**
+     * Esquece os resultados guardados (ex: o banco foi alterado por outro processo).
+     */
+    public void limparCache() {
+        cache.limpar();
+    }
+
     /**
      * Busca viagens com paginação.
      * Aplica regra de negócio: ordena por data de início (mais recente primeiro).
      * A decisão de ordenação é uma regra de negócio, não do DAO.
      */
     public List<Viagem> buscarViagens(int limite, int offset) throws SQLException {
+        return cache.buscar(List.of("viagensOffset", limite, offset), () -> {
+            try (Connection conn = ConexaoFactory.getConexao()) {
+                // Regra de negócio: ordenação por data mais recente
+                String orderBy = "v.data_inicio DESC";
+                return Collections.unmodifiableList(dao.buscarViagens(conn, orderBy, limite, offset));
+            }
+        });
+    }
+
+    /**
+     * Busca a página de viagens seguinte ao cursor (paginação por chave).
+     * Mesma regra de ordenação de buscarViagens (mais recente primeiro), com o processo
+     * como desempate para a ordem ser estável. Cursor null = primeira página.
+     * Use CursorViagemDTO.depoisDe(última viagem da página) para pedir a próxima.
+     */
+    public List<Viagem> buscarViagens(CursorViagemDTO cursor, int limite) throws SQLException {
+        LocalDate dataInicio = cursor != null ? cursor.getDataInicio() : null;
+        String idProcesso = cursor != null ? cursor.getIdProcesso() : null;
+        // Arrays.asList aceita os nulls da primeira página
+        return cache.buscar(Arrays.asList("viagensCursor", dataInicio, idProcesso, limite), () -> {
+            try (Connection conn = ConexaoFactory.getConexao()) {
+                return Collections.unmodifiableList(dao.buscarViagensAposCursor(conn, dataInicio, idProcesso, limite));
+            }
+        });
+    }
+
+    /**
+     * Busca um bloco de viagens para a tabela rolável (mesma ordem de buscarViagens(cursor, limite)):
+     * as tamanhoBloco viagens a partir da posição primeiraLinha (0 = a mais recente).
+     * <p>
+     * Com o cursor do início do bloco (o fim do bloco anterior, ao rolar em sequência), é só uma
+     * página por chave. Sem ele (a barra foi arrastada para longe), a posição é convertida numa data
+     * pela quantidade de viagens por dia (lida uma vez e guardada até a próxima importação) e o banco
+     * desce no índice direto até essa data, percorrendo só as viagens daquele dia.
+     * <p>
+     * Não passa pelo cache: quem rola a tabela guarda os próprios blocos, e milhares de blocos
+     * tirariam do cache as consultas que se repetem (estatísticas, relatórios).
+     *
+     * @param cursorInicio Cursor logo antes de primeiraLinha, se conhecido (null se não; ignorado na posição 0)
+     */
+    public List<Viagem> buscarBlocoViagens(long primeiraLinha, CursorViagemDTO cursorInicio, int tamanhoBloco) throws SQLException {
+        List<Object[]> dias = primeiraLinha > 0 && cursorInicio == null ? buscarQuantidadePorDia() : null;
         try (Connection conn = ConexaoFactory.getConexao()) {
-            // Regra de negócio: ordenação por data mais recente
-            String orderBy = "v.data_inicio DESC";
-            return dao.buscarViagens(conn, orderBy, limite, offset);
+            LocalDate dataInicio = null;
+            String idProcesso = null;
+            if (primeiraLinha > 0 && cursorInicio != null) {
+                dataInicio = cursorInicio.getDataInicio();
+                idProcesso = cursorInicio.getIdProcesso();
+            } else if (primeiraLinha > 0) {
+                // Chave da viagem logo antes do bloco: acha o dia dela e a posição dentro do dia
+                long anteriores = 0;
+                long posicao = primeiraLinha - 1;
+                for (Object[] dia : dias) {
+                    long quantidade = (Long) dia[1];
+                    if (posicao < anteriores + quantidade) {
+                        dataInicio = (LocalDate) dia[0];
+                        idProcesso = dao.buscarProcessoNoDia(conn, dataInicio, posicao - anteriores);
+                        break;
+                    }
+                    anteriores += quantidade;
+                }
+                if (idProcesso == null) return List.of(); // A tabela encolheu
+            }
+            return dao.buscarViagensAposCursor(conn, dataInicio, idProcesso, tamanhoBloco);
         }
     }
 
+    /**
+     * Viagens por data de início, da mais recente para a mais antiga: [data, quantidade].
+     * Guardado no cache até a próxima importação confirmar viagens.
+     */
+    private List<Object[]> buscarQuantidadePorDia() throws SQLException {
+        return cache.buscar(List.of("quantidadePorDia"), () -> {
+            try (Connection conn = ConexaoFactory.getConexao()) {
+                return Collections.unmodifiableList(dao.buscarQuantidadePorDia(conn));
+            }
+        });
+    }
+
+    /**
+     * Total de viagens, lido do resumo (resumo_geral), sem COUNT(*) na tabela viagem.
+     */
+    public long buscarTotalViagens() throws SQLException {
+        return (Long) buscarEstatisticas().get("totalViagens");
+    }
+
     /**
      * Conta o total de viagens.
      */
     public int contarTotalViagens() throws SQLException {
-        try (Connection conn = ConexaoFactory.getConexao()) {
-            return dao.contarViagens(conn);
-        }
+        return cache.buscar(List.of("contagem"), () -> {
+            try (Connection conn = ConexaoFactory.getConexao()) {
+                return dao.contarViagens(conn);
+            }
+        });
     }
 
     /**
@@ -56,20 +167,24 @@ public class ServicoConsulta {
      * A estrutura de retorno é uma convenção de negócio, não do DAO.
      */
     public Map<String, Object> buscarEstatisticas() throws SQLException {
-        try (Connection conn = ConexaoFactory.getConexao()) {
-            Object[] dados = dao.buscarDadosEstatisticas(conn);
-            
-            Map<String, Object> stats = new HashMap<>();
-            // Estrutura de dados definida pela camada de serviço (regra de negócio)
-            // Ordem: [total_viagens, valor_total, valor_medio, valor_minimo, valor_maximo]
-            stats.put("totalViagens", dados[0]);
-            stats.put("valorTotal", dados[1]);
-            stats.put("valorMedio", dados[2]);
-            stats.put("valorMinimo", dados[3]);
-            stats.put("valorMaximo", dados[4]);
-            
-            return stats;
-        }
+        return cache.buscar(List.of("estatisticas"), () -> {
+            try (Connection conn = ConexaoFactory.getConexao()) {
+                return montarEstatisticas(dao.buscarDadosEstatisticas(conn));
+            }
+        });
+    }
+
+    private static Map<String, Object> montarEstatisticas(Object[] dados) {
+        Map<String, Object> stats = new HashMap<>();
+        // Estrutura de dados definida pela camada de serviço (regra de negócio)
+        // Ordem: [total_viagens, valor_total, valor_medio, valor_minimo, valor_maximo]
+        stats.put("totalViagens", dados[0]);
+        stats.put("valorTotal", dados[1]);
+        stats.put("valorMedio", dados[2]);
+        stats.put("valorMinimo", dados[3]);
+        stats.put("valorMaximo", dados[4]);
+
+        return Collections.unmodifiableMap(stats);
     }
 
     /**
@@ -80,20 +195,23 @@ public class ServicoConsulta {
      * @return Lista de OrgaoGastador ordenada por valor total (maior para menor)
      */
     public List<OrgaoGastadorDTO> buscarMaioresGastadores(int quantidade) throws SQLException {
-        try (Connection conn = ConexaoFactory.getConexao()) {
-            // Regra de negócio: busca os N maiores gastadores
-            List<Object[]> dadosBrutos = dao.buscarDadosOrgaosMaioresGastadores(conn, quantidade);
-            
-            // Transforma dados brutos em objetos de domínio
-            List<OrgaoGastadorDTO> gastadores = new ArrayList<>();
-            for (Object[] dados : dadosBrutos) {
-                String nomeOrgao = (String) dados[0];
-                double valorTotal = ((Number) dados[1]).doubleValue();
-                gastadores.add(new OrgaoGastadorDTO(nomeOrgao, valorTotal));
+        return cache.buscar(List.of("gastadores", quantidade), () -> {
+            try (Connection conn = ConexaoFactory.getConexao()) {
+                // Regra de negócio: busca os N maiores gastadores
+                return montarGastadores(dao.buscarDadosOrgaosMaioresGastadores(conn, quantidade));
             }
-            
-            return gastadores;
+        });
+    }
+
+    private static List<OrgaoGastadorDTO> montarGastadores(List<Object[]> dadosBrutos) {
+        // Transforma dados brutos em objetos de domínio
+        List<OrgaoGastadorDTO> gastadores = new ArrayList<>();
+        for (Object[] dados : dadosBrutos) {
+            String nomeOrgao = (String) dados[0];
+            double valorTotal = ((Number) dados[1]).doubleValue();
+            gastadores.add(new OrgaoGastadorDTO(nomeOrgao, valorTotal));
         }
+        return Collections.unmodifiableList(gastadores);
     }
 
     /**
@@ -111,21 +229,24 @@ public class ServicoConsulta {
      * @return Lista de DestinoFrequente ordenada por quantidade de viagens (maior para menor)
      */
     public List<DestinoFrequenteDTO> buscarDestinosFrequentes(int quantidade) throws SQLException {
-        try (Connection conn = ConexaoFactory.getConexao()) {
-            // Busca os N destinos mais frequentes
-            List<Object[]> dadosBrutos = dao.buscarDadosDestinosFrequentes(conn, quantidade);
-            
-            // Transforma dados brutos em objetos de domínio
-            List<DestinoFrequenteDTO> destinos = new ArrayList<>();
-            for (Object[] dados : dadosBrutos) {
-                String nomeCidade = (String) dados[0];
-                String uf = (String) dados[1];
-                int quantidadeViagens = ((Number) dados[2]).intValue();
-                destinos.add(new DestinoFrequenteDTO(nomeCidade, uf, quantidadeViagens));
+        return cache.buscar(List.of("destinos", quantidade), () -> {
+            try (Connection conn = ConexaoFactory.getConexao()) {
+                // Busca os N destinos mais frequentes
+                return montarDestinos(dao.buscarDadosDestinosFrequentes(conn, quantidade));
             }
-            
-            return destinos;
+        });
+    }
+
+    private static List<DestinoFrequenteDTO> montarDestinos(List<Object[]> dadosBrutos) {
+        // Transforma dados brutos em objetos de domínio
+        List<DestinoFrequenteDTO> destinos = new ArrayList<>();
+        for (Object[] dados : dadosBrutos) {
+            String nomeCidade = (String) dados[0];
+            String uf = (String) dados[1];
+            int quantidadeViagens = ((Number) dados[2]).intValue();
+            destinos.add(new DestinoFrequenteDTO(nomeCidade, uf, quantidadeViagens));
         }
+        return Collections.unmodifiableList(destinos);
     }
 
     /**
@@ -134,5 +255,80 @@ public class ServicoConsulta {
     public List<DestinoFrequenteDTO> buscarTop10DestinosFrequentes() throws SQLException {
         return buscarDestinosFrequentes(10);
     }
-}
 
+    /**
+     * Busca tudo o que a tela mostra ao abrir numa única conexão e numa única ida ao banco:
+     * estatísticas (com o total de viagens, lido do resumo em vez de um COUNT(*)),
+     * primeira página de viagens (mesma ordem de buscarViagens(cursor, limite)),
+     * top 5 gastadores e top 10 destinos.
+     *
+     * @param limiteViagens Tamanho da primeira página de viagens
+     */
+    public PainelDTO buscarPainel(int limiteViagens) throws SQLException {
+        return cache.buscar(List.of("painel", limiteViagens), () -> carregarPainel(limiteViagens));
+    }
+
+    @SuppressWarnings("unchecked")
+    private PainelDTO carregarPainel(int limiteViagens) throws SQLException {
+        try (Connection conn = ConexaoFactory.getConexao()) {
+            // Mesmas quantidades de buscarTop5MaioresGastadores e buscarTop10DestinosFrequentes
+            Object[] dados = dao.buscarDadosPainel(conn, limiteViagens, 5, 10);
+            return new PainelDTO(
+                    montarEstatisticas((Object[]) dados[0]),
+                    Collections.unmodifiableList((List<Viagem>) dados[1]),
+                    montarGastadores((List<Object[]>) dados[2]),
+                    montarDestinos((List<Object[]>) dados[3]));
+        }
+    }
+
+    /**
+     * Agrupa as viagens que passam no filtro (órgão, UF, meses, faixa de valor) por órgão, cidade,
+     * UF ou mês, com quantidade, total, mínimo e máximo de cada grupo, do maior total para o menor.
+     * <p>
+     * Roda sobre uma cópia da tabela viagem em memória (SnapshotViagens), varrida em paralelo:
+     * trocar o filtro ou o agrupamento não vai ao banco. Não lê a cópia: ela é lida à parte por
+     * carregarSnapshotViagens (ao abrir a tela e depois de cada importação), que numa tabela grande
+     * passa do prazo de uma consulta da tela. Enquanto a cópia nova é lida, usa a anterior.
+     *
+     * @throws IllegalStateException se a cópia ainda não foi lida nenhuma vez
+     */
+    public List<GrupoViagensDTO> agruparViagens(FiltroViagensDTO filtro, AgrupamentoViagens agrupamento) {
+        SnapshotViagens atual = snapshot;
+        if (atual == null) {
+            throw new IllegalStateException("As viagens ainda estão sendo carregadas para a análise. Tente de novo em instantes.");
+        }
+        return Collections.unmodifiableList(atual.agrupar(filtro, agrupamento));
+    }
+
+    /**
+     * Lê a cópia em memória usada por agruparViagens, se ela ainda não foi lida ou se a importação mudou
+     * os dados desde então (cerca de 20 bytes por viagem). Lê a tabela viagem inteira: chame numa thread
+     * própria, fora do prazo das consultas da tela. A cópia anterior continua valendo até a nova ficar pronta.
+     * Retorna quantas viagens a cópia tem.
+     */
+    public synchronized int carregarSnapshotViagens() throws SQLException {
+        SnapshotViagens atual = snapshot;
+        if (atual == null || atual.getVersaoDados() != ServicoImportacao.getVersaoDados()) {
+            atual = lerSnapshot();
+            snapshot = atual;
+        }
+        return atual.getTotalViagens();
+    }
+
+    private SnapshotViagens lerSnapshot() throws SQLException {
+        try (Connection conn = ConexaoFactory.getConexaoLonga()) { // Lê a tabela inteira: pool do trabalho longo
+            // Uma transação só: dimensões e viagens vêm da mesma fotografia do banco
+            conn.setAutoCommit(false);
+            try {
+                SnapshotViagens lido = SnapshotViagens.carregar(conn, dao);
+                conn.commit();
+                return lido;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+}
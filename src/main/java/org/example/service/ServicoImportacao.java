@@ -1,8 +1,5 @@
 package org.example.service;
 
-import com.opencsv.CSVParserBuilder;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVReaderBuilder;
 import org.example.database.ConexaoFactory;
 import org.example.database.DadosDAO;
 import org.example.model.Cidade;
@@ -10,121 +7,227 @@ import org.example.model.Orgao;
 import org.example.model.Viagem;
 import org.example.util.TratamentoDados;
 
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 public class ServicoImportacao {
-    private static final int LIMITE_LINHAS = 20000; //Freio de mão para travar o pc com excesso de informações
 
-    public static void excetuarImportacao(String caminhoArquivo) throws SQLException {
-        DadosDAO dao = new DadosDAO();
-        GestaoEntidadesUnicas gestaoEntidades = new GestaoEntidadesUnicas();
-
-        System.out.println("Iniciando leitura de arquivo: " + caminhoArquivo);
-
-        try (Connection conn = ConexaoFactory.getConexao();
-             InputStreamReader reader = new InputStreamReader(new FileInputStream(caminhoArquivo), StandardCharsets.ISO_8859_1);
-
-             // 2. Configuramos o OpenCSV para entender que o separador é PONTO E VÍRGULA (;)
-             // Se não fizer isso, ele acha que é vírgula e quebra tudo!
-             CSVReader csvReader = new CSVReaderBuilder(reader)
-                     .withCSVParser(new CSVParserBuilder().withSeparator(';').build())
-                     .build()
-        ) {
-            conn.setAutoCommit(false); // Performance: Desliga salvamento automático
-            String[] dados; //O OpenCSV vai preencher isso aqui pra gente
+    // Avança a cada commit que muda viagens ou resumos (ver getVersaoDados)
+    private static final AtomicLong VERSAO_DADOS = new AtomicLong();
 
-            //Pula o cabeçalho
-            csvReader.readNext();
+    /**
+     * Versão dos dados de viagem nesta JVM: avança a cada commit de uma importação (e quando os
+     * resumos são refeitos). Resultados de consulta guardados numa versão anterior estão velhos.
+     */
+    public static long getVersaoDados() {
+        return VERSAO_DADOS.get();
+    }
 
-            int contador = 0;
+    static void avancarVersaoDados() {
+        VERSAO_DADOS.incrementAndGet();
+    }
 
+    public static void excetuarImportacao(String caminhoArquivo) throws SQLException {
+        excetuarImportacao(caminhoArquivo, new ConfiguracaoImportacao());
+    }
 
-            while ((dados = csvReader.readNext()) != null) {
+    /**
+     * Importação delta, para o arquivo do mês que repete quase todas as linhas do anterior:
+     * cada viagem é comparada com a que já está no banco pelo id_processo e pelo hash do conteúdo
+     * (viagem.hash_conteudo). Só as novas são inseridas e só as alteradas são regravadas.
+     */
+    public static void importarDelta(String caminhoArquivo) throws SQLException {
+        ConfiguracaoImportacao config = new ConfiguracaoImportacao();
+        config.setImportacaoDelta(true);
+        excetuarImportacao(caminhoArquivo, config);
+    }
 
-                if (contador >= LIMITE_LINHAS) {
-                    System.out.println("!!! Limite de " + LIMITE_LINHAS + " atingido.");
-                    break;
-                }
+    /**
+     * Importa o arquivo usando a configuração informada.
+     * <p>
+     * O caminho pode ser o CSV ou o ZIP do Portal da Transparência: no ZIP, a entrada de viagens
+     * (ex: 2023_Viagem.csv) é lida direto, descompactando enquanto lê, sem extrair nada para o disco.
+     * <p>
+     * O arquivo é lido inteiro, em streaming, por um pipeline de etapas (ver PipelineImportacao):
+     * um leitor, N threads de limpeza/transformação e M gravadores, ligados por filas limitadas.
+     * Se o banco ficar para trás, as filas enchem e o leitor espera (backpressure), então a memória
+     * usada não depende do tamanho do arquivo. O commit é feito a cada config.getTamanhoCommit() linhas.
+     * O conteúdo final do banco é o mesmo para qualquer número de threads: órgãos e cidades são criados
+     * na ordem do arquivo, e um bloco que repete um id_processo de um bloco ainda sem commit espera esse
+     * bloco ser confirmado, então a repetição sempre encontra a ocorrência anterior já no banco.
+     * <p>
+     * Cada commit grava também o checkpoint do arquivo (importacao_checkpoint). Importar de novo o
+     * mesmo arquivo retoma do último checkpoint (ou não faz nada, se ele já foi importado por completo),
+     * e viagens cujo processo já está no banco são puladas: repetir a importação não duplica linhas.
+     * <p>
+     * A forma de gravar vem de config.getModoGravacao(): em lote (um único PreparedStatement
+     * reaproveitado), LOAD DATA LOCAL INFILE ou um INSERT por linha. No fim, informa as
+     * linhas por segundo, para comparar os modos no mesmo arquivo.
+     * <p>
+     * Com config.setCancelamento(), a importação pode ser interrompida de outra thread: o que não
+     * foi confirmado é desfeito e o método lança ImportacaoCanceladaException.
+     */
+    public static void excetuarImportacao(String caminhoArquivo, ConfiguracaoImportacao config) throws SQLException {
+        System.out.println("Iniciando leitura de arquivo: " + caminhoArquivo + " [" + config.descreverModo() + "]");
+        long inicio = System.nanoTime();
+
+        try {
+            long contador = new PipelineImportacao(caminhoArquivo, config).executar();
+
+            double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+            long linhasPorSegundo = segundos > 0 ? Math.round(contador / segundos) : contador;
+            System.out.println("\nSUCESSO! " + contador + " viagens importadas em "
+                    + String.format("%.1f", segundos) + "s (" + linhasPorSegundo + " linhas/s, "
+                    + config.descreverModo() + ").");
+            System.out.println(ConexaoFactory.getMetricasPoolCarga());
+        } catch (SQLException | ImportacaoCanceladaException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-                int totalColunas = dados.length;
+    /**
+     * Refaz as tabelas de resumo (resumo_orgao, resumo_cidade e resumo_geral) a partir da
+     * tabela viagem. A importação já mantém os resumos; use para preencher os resumos de um
+     * banco que já tinha viagens antes deles existirem.
+     */
+    public static void recalcularResumos() throws SQLException {
+        try (Connection conn = ConexaoFactory.getConexaoLonga()) {
+            conn.setAutoCommit(false);
+            try {
+                new DadosDAO().recalcularResumos(conn);
+                conn.commit();
+                avancarVersaoDados();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
 
-                //Validação básica para não quebrar
-                if (totalColunas < 15) continue;
+    /**
+     * Refaz o mínimo e o máximo dos resumos dos grupos informados, numa transação só
+     * (depois de uma importação delta que regravou viagens desses grupos).
+     */
+    static void recalcularExtremosResumos(Collection<Integer> idsOrgao, Collection<Integer> idsCidade) throws SQLException {
+        try (Connection conn = ConexaoFactory.getConexaoLonga()) {
+            conn.setAutoCommit(false);
+            try {
+                new DadosDAO().recalcularExtremosResumos(conn, idsOrgao, idsCidade);
+                conn.commit();
+                avancarVersaoDados();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
 
-                // --- 1. LIMPEZA (Usando a classe utilitária que faremos a seguir) ---
-                // Ajustando os índices
+    /**
+     * Limpa e converte uma linha completa do CSV em Viagem (ainda sem os IDs de órgão e cidade).
+     * Retorna null se a linha não tiver colunas suficientes.
+     */
+    static Viagem converterLinha(String[] dados) {
+        return converterColunas(ColunasViagem.projetar(dados));
+    }
 
-                /*
-                Os valores variam bastante a coluna, a melhor maneira para localizá-los é buscando de trás para frente.
-                O array começa no 0 e o tamanho é N.
-                Se baseando no cabeçalho: ...;Diárias;Passagens;Devolução;Outros
-                Outros = índice [total - 1]
-                Devolução = índice [total - 2]
-                Passagens = índice [total - 3]
-                Diárias = índice [total - 4]
-                */
+    /**
+     * Limpa e converte as colunas usadas de uma linha (na ordem de ColunasViagem, como entregues
+     * pelos leitores LeitorLinhasCsv) em Viagem, ainda sem os IDs de órgão e cidade.
+     * Retorna null se a linha não tiver colunas suficientes.
+     * Não acessa o banco, então pode ser chamado de várias threads ao mesmo tempo.
+     */
+    static Viagem converterColunas(String[] colunas) {
+        //Validação básica para não quebrar
+        if (colunas == ColunasViagem.LINHA_CURTA) return null;
+
+        if (colunas[ColunasViagem.DESTINO] == null) {
+            throw new IllegalArgumentException("Linha sem a coluna de destino (coluna " + ColunasViagem.COLUNA_DESTINO + ")");
+        }
 
-                String idProcesso = TratamentoDados.limparTexto(dados[0]);
-                String nomeOrgao = TratamentoDados.limparTexto(dados[6]);
-                String destinoBruto = TratamentoDados.limparTexto(dados[16]);
+        // --- 1. LIMPEZA ---
+        // Os valores são localizados de trás para frente pelo leitor (ver ColunasViagem)
 
-                String strData = TratamentoDados.limparTexto(dados[14]);
-                LocalDate dataInicio = TratamentoDados.converterData(strData);
+        String idProcesso = TratamentoDados.limparTexto(colunas[ColunasViagem.ID_PROCESSO]);
+        String nomeOrgao = TratamentoDados.limparTexto(colunas[ColunasViagem.ORGAO]);
 
-                //LOCALIZANDO, CONVERTENDO E SOMANDO OS VALORES
+        // converterData já ignora aspas e espaços; datas inválidas são só contadas (ver PipelineImportacao)
+        LocalDate dataLida = TratamentoDados.converterDataOuNull(colunas[ColunasViagem.DATA_INICIO]);
+        LocalDate dataInicio = dataLida != null ? dataLida : LocalDate.now(); // "Tapa-buraco", como em converterData
 
-                String strValorDiarias = TratamentoDados.limparTexto(dados[totalColunas - 4]);
-                String strValorPassagens = TratamentoDados.limparTexto(dados[totalColunas - 3]);
-                String strValorDevolucao = TratamentoDados.limparTexto(dados[totalColunas - 2]);
-                String strValorOutrosGastos = TratamentoDados.limparTexto(dados[totalColunas - 1]);
+        //CONVERTENDO E SOMANDO OS VALORES
 
-                Double valorDiarias = TratamentoDados.converterValor(strValorDiarias);
-                Double valorPassagem = TratamentoDados.converterValor(strValorPassagens);
-                Double valorDevolucao = TratamentoDados.converterValor(strValorDevolucao);
-                Double valorOutrosGastos = TratamentoDados.converterValor(strValorOutrosGastos);
+        // Direto em centavos (long): sem Strings intermediárias e sem erro de arredondamento do double na soma
+        long centavosDiarias = TratamentoDados.converterValorCentavos(colunas[ColunasViagem.DIARIAS]);
+        long centavosPassagens = TratamentoDados.converterValorCentavos(colunas[ColunasViagem.PASSAGENS]);
+        long centavosDevolucao = TratamentoDados.converterValorCentavos(colunas[ColunasViagem.DEVOLUCAO]);
+        long centavosOutrosGastos = TratamentoDados.converterValorCentavos(colunas[ColunasViagem.OUTROS]);
 
-                Double valorTotal = valorDiarias + valorPassagem + valorOutrosGastos - valorDevolucao;
+        long centavosTotal = centavosDiarias + centavosPassagens + centavosOutrosGastos - centavosDevolucao;
+        double valorTotal = centavosTotal / 100.0; // O double mais próximo do valor exato
 
-                // --- 2. PADRONIZAÇÃO ---
-                String[] localizacao = TratamentoDados.separarCidadeUF(destinoBruto);
-                String nomeCidade = localizacao[0];
-                String uf = localizacao[1];
+        // --- 2. PADRONIZAÇÃO ---
+        // separarCidadeUF já limpa o texto; passar a coluna bruta evita limpar duas vezes
+        String[] localizacao = TratamentoDados.separarCidadeUF(colunas[ColunasViagem.DESTINO]);
+        String nomeCidade = localizacao[0];
+        String uf = localizacao[1];
 
-                // --- 3. PERSISTÊNCIA (usando GestaoEntidadesUnicas) ---
-                try {
-                    //Cria Objetos temporários
-                    Orgao orgao = new Orgao(nomeOrgao);
-                    Cidade cidade = new Cidade(nomeCidade, uf);
+        //Cria Objetos temporários
+        Orgao orgao = new Orgao(nomeOrgao);
+        Cidade cidade = new Cidade(nomeCidade, uf);
 
-                    //Recupera IDs do banco (usando gestão de entidades únicas)
-                    int idOrgao = gestaoEntidades.salvarOuRecuperarOrgao(conn, orgao);
-                    int idCidade = gestaoEntidades.salvarOuRecuperarCidade(conn, cidade);
+        Viagem viagem = new Viagem(idProcesso, dataInicio, valorTotal, orgao, cidade);
+        // Hash da data lida, não do tapa-buraco: senão a mesma linha mudaria de hash a cada dia
+        viagem.setHashConteudo(calcularHashConteudo(dataLida, centavosTotal, nomeOrgao, nomeCidade, uf));
+        return viagem;
+    }
 
-                    // Atualiza os objetos com o ID correto
-                    orgao.setId(idOrgao);
-                    cidade.setId(idCidade);
+    private static final long FNV_BASE = 0xcbf29ce484222325L;
+    private static final long FNV_PRIMO = 0x100000001b3L;
+
+    // Entra no hash no lugar do dia quando a data está vazia ou é inválida
+    private static final long DIA_SEM_DATA = Long.MIN_VALUE;
+
+    /**
+     * Impressão digital (FNV-1a de 64 bits) do conteúdo limpo de uma viagem, sem o id_processo.
+     * Gravada em viagem.hash_conteudo; a importação delta compara com ela para saber se a linha mudou.
+     *
+     * @param dataInicio Data lida do arquivo, ou null se vazia ou inválida
+     */
+    static long calcularHashConteudo(LocalDate dataInicio, long centavosTotal, String orgao, String cidade, String uf) {
+        long hash = FNV_BASE;
+        hash = misturar(hash, dataInicio != null ? dataInicio.toEpochDay() : DIA_SEM_DATA);
+        hash = misturar(hash, centavosTotal);
+        hash = misturar(hash, orgao);
+        hash = misturar(hash, cidade);
+        return misturar(hash, uf);
+    }
 
-                    //Salva a viagem
-                    Viagem viagem = new Viagem(idProcesso, dataInicio, valorTotal, orgao, cidade);
-                    dao.inserirViagem(conn, viagem);
+    private static long misturar(long hash, long valor) {
+        for (int i = 0; i < 8; i++) {
+            hash = (hash ^ (valor & 0xFF)) * FNV_PRIMO;
+            valor >>>= 8;
+        }
+        return hash;
+    }
 
-                    contador++;
-                    if (contador % 1000 == 0) System.out.print("."); // Barra de Progresso simples
-                } catch (Exception e) {
-                    System.err.println("Erro na linha " + contador + ": " + e.getMessage());
-                }
+    private static long misturar(long hash, String texto) {
+        if (texto != null) {
+            for (int i = 0; i < texto.length(); i++) {
+                char c = texto.charAt(i);
+                hash = (hash ^ (c & 0xFF)) * FNV_PRIMO;
+                hash = (hash ^ (c >>> 8)) * FNV_PRIMO;
             }
-
-            conn.commit(); //Salva tudo de uma vez
-            System.out.println("\nSUCESSO! " + contador + " viagens importadas.");
-        } catch (Exception e) {
-            throw new RuntimeException(e);
         }
+        return (hash ^ 0xFF) * FNV_PRIMO; // Separador: "AB"+"C" e "A"+"BC" dão hashes diferentes
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,349 @@
+package org.example.service;
+
+import org.example.database.DadosDAO;
+import org.example.dto.FiltroViagensDTO;
+import org.example.dto.GrupoViagensDTO;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Cópia da tabela viagem em memória, em colunas, para filtrar e reagrupar sem ir ao banco.
+ * <p>
+ * Cada viagem ocupa 20 bytes: código do órgão (int), código da cidade (int), mês da data de início
+ * (ano * 12 + mês - 1, int) e valor em centavos (long). Os nomes ficam uma vez só, em
+ * dicionários (código -> nome); a UF vem da cidade. Os códigos são densos (0..n-1), então cada
+ * agrupamento soma em arrays indexados pelo código, sem mapas nem objetos por linha.
+ * <p>
+ * As agregações dividem as linhas em partes e varrem as partes em paralelo (ForkJoinPool comum),
+ * cada uma com os seus acumuladores, somados no fim.
+ * <p>
+ * É uma fotografia: não muda depois de carregada. getVersaoDados() diz de que versão dos
+ * dados (ServicoImportacao.getVersaoDados()) ela é. Imutável e thread-safe.
+ */
+final class SnapshotViagens {
+
+    private static final int CAPACIDADE_INICIAL = 1 << 16;
+
+    // Partes menores que isso não compensam uma tarefa a mais
+    private static final int LINHAS_MINIMAS_POR_PARTE = 1 << 16;
+
+    private final long versaoDados;
+
+    // Colunas, uma posição por viagem
+    private final int total;
+    private final int[] orgao;
+    private final int[] cidade;
+    private final int[] mes;
+    private final long[] centavos;
+
+    // Dicionários
+    private final String[] nomesOrgao;
+    private final String[] nomesCidade;
+    private final int[] ufDaCidade;
+    private final String[] ufs;
+    private final Map<String, Integer> codigoPorNomeOrgao;
+    private final Map<String, Integer> codigoPorUf;
+
+    // Meses entre a primeira e a última viagem: o grupo do agrupamento por mês é mes[i] - mesMinimo
+    private final int mesMinimo;
+    private final int totalMeses;
+
+    private SnapshotViagens(long versaoDados, int total, int[] orgao, int[] cidade, int[] mes, long[] centavos,
+                            String[] nomesOrgao, String[] nomesCidade, int[] ufDaCidade, String[] ufs) {
+        this.versaoDados = versaoDados;
+        this.total = total;
+        this.orgao = orgao;
+        this.cidade = cidade;
+        this.mes = mes;
+        this.centavos = centavos;
+        this.nomesOrgao = nomesOrgao;
+        this.nomesCidade = nomesCidade;
+        this.ufDaCidade = ufDaCidade;
+        this.ufs = ufs;
+        this.codigoPorNomeOrgao = indexar(nomesOrgao);
+        this.codigoPorUf = indexar(ufs);
+
+        int minimo = Integer.MAX_VALUE;
+        int maximo = Integer.MIN_VALUE;
+        for (int i = 0; i < total; i++) {
+            minimo = Math.min(minimo, mes[i]);
+            maximo = Math.max(maximo, mes[i]);
+        }
+        if (total == 0) minimo = maximo = 0;
+
+        this.mesMinimo = minimo;
+        this.totalMeses = maximo - minimo + 1;
+    }
+
+    /**
+     * Mês (ano * 12 + mês - 1) de um dia em dias desde 1970-01-01, sem criar LocalDate
+     * (mesma conta do LocalDate.ofEpochDay, no calendário gregoriano proléptico).
+     */
+    static int mesDoDia(int diaEpoca) {
+        long diaDesdeZero = diaEpoca + 719_528L - 60; // Dias desde 0000-03-01: o ano começa em março
+        long ajuste = 0;
+        if (diaDesdeZero < 0) {
+            long ciclos = (diaDesdeZero + 1) / 146_097 - 1; // Ciclos de 400 anos
+            ajuste = ciclos * 400;
+            diaDesdeZero -= ciclos * 146_097;
+        }
+        long ano = (400 * diaDesdeZero + 591) / 146_097;
+        long diaDoAno = diaDesdeZero - (365 * ano + ano / 4 - ano / 100 + ano / 400);
+        if (diaDoAno < 0) {
+            ano--;
+            diaDoAno = diaDesdeZero - (365 * ano + ano / 4 - ano / 100 + ano / 400);
+        }
+        int mesDesdeMarco = (int) ((diaDoAno * 5 + 2) / 153); // 0 = março ... 11 = fevereiro
+        ano += ajuste + mesDesdeMarco / 10;                 // Janeiro e fevereiro já são do ano seguinte
+        int mesDoAno = (mesDesdeMarco + 2) % 12;             // 0 = janeiro
+        return (int) (ano * 12 + mesDoAno);
+    }
+
+    private static int mesDe(YearMonth mes) {
+        return mes.getYear() * 12 + mes.getMonthValue() - 1;
+    }
+
+    private static Map<String, Integer> indexar(String[] nomes) {
+        Map<String, Integer> codigos = new HashMap<>(nomes.length * 2);
+        for (int i = 0; i < nomes.length; i++) codigos.putIfAbsent(nomes[i], i);
+        return codigos;
+    }
+
+    /**
+     * Lê órgãos, cidades e viagens do banco em streaming. Para as três leituras verem os mesmos dados,
+     * a conexão deve estar numa transação (autocommit desligado): no InnoDB, as consultas de uma
+     * transação leem a mesma fotografia do banco.
+     */
+    static SnapshotViagens carregar(Connection conn, DadosDAO dao) throws SQLException {
+        long versao = ServicoImportacao.getVersaoDados(); // Antes de ler: se mudar no meio, a cópia já nasce velha
+
+        // Dicionários: ID do banco -> código denso
+        Map<Integer, Integer> codigoPorIdOrgao = new HashMap<>();
+        Map<Integer, Integer> codigoPorIdCidade = new HashMap<>();
+        Map<String, Integer> codigoPorUf = new HashMap<>();
+        List<String> nomesOrgao = new ArrayList<>();
+        List<String> nomesCidade = new ArrayList<>();
+        List<String> ufs = new ArrayList<>();
+        List<Integer> ufDaCidade = new ArrayList<>();
+
+        dao.carregarDimensoes(conn, (ehOrgao, id, nome, uf) -> {
+            if (ehOrgao) {
+                codigoPorIdOrgao.put(id, nomesOrgao.size());
+                nomesOrgao.add(nome);
+            } else {
+                codigoPorIdCidade.put(id, nomesCidade.size());
+                nomesCidade.add(nome);
+                ufDaCidade.add(codigoPorUf.computeIfAbsent(uf, novaUf -> {
+                    ufs.add(novaUf);
+                    return ufs.size() - 1;
+                }));
+            }
+        });
+
+        int[] orgaoPorId = codigosPorId(codigoPorIdOrgao);
+        int[] cidadePorId = codigosPorId(codigoPorIdCidade);
+
+        Colunas colunas = new Colunas();
+        dao.carregarFatosViagens(conn, (idOrgao, idCidade, diaEpoca, valorCentavos) ->
+                colunas.adicionar(orgaoPorId[idOrgao], cidadePorId[idCidade], mesDoDia(diaEpoca), valorCentavos));
+
+        return new SnapshotViagens(versao, colunas.total,
+                Arrays.copyOf(colunas.orgao, colunas.total), Arrays.copyOf(colunas.cidade, colunas.total),
+                Arrays.copyOf(colunas.mes, colunas.total), Arrays.copyOf(colunas.centavos, colunas.total),
+                nomesOrgao.toArray(new String[0]), nomesCidade.toArray(new String[0]),
+                ufDaCidade.stream().mapToInt(Integer::intValue).toArray(), ufs.toArray(new String[0]));
+    }
+
+    // IDs do banco são auto-incremento (quase contínuos): um array indexado pelo ID é menor e mais rápido que o mapa
+    private static int[] codigosPorId(Map<Integer, Integer> codigoPorId) {
+        int maiorId = codigoPorId.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+        int[] codigos = new int[maiorId + 1];
+        codigoPorId.forEach((id, codigo) -> codigos[id] = codigo);
+        return codigos;
+    }
+
+    /**
+     * Colunas que crescem enquanto as viagens chegam do banco (dobrando de tamanho, como um ArrayList).
+     */
+    private static class Colunas {
+        int total = 0;
+        int[] orgao = new int[CAPACIDADE_INICIAL];
+        int[] cidade = new int[CAPACIDADE_INICIAL];
+        int[] mes = new int[CAPACIDADE_INICIAL];
+        long[] centavos = new long[CAPACIDADE_INICIAL];
+
+        void adicionar(int codigoOrgao, int codigoCidade, int mesViagem, long valorCentavos) {
+            if (total == orgao.length) {
+                int capacidade = total * 2;
+                orgao = Arrays.copyOf(orgao, capacidade);
+                cidade = Arrays.copyOf(cidade, capacidade);
+                mes = Arrays.copyOf(mes, capacidade);
+                centavos = Arrays.copyOf(centavos, capacidade);
+            }
+            orgao[total] = codigoOrgao;
+            cidade[total] = codigoCidade;
+            mes[total] = mesViagem;
+            centavos[total] = valorCentavos;
+            total++;
+        }
+    }
+
+    long getVersaoDados() {
+        return versaoDados;
+    }
+
+    int getTotalViagens() {
+        return total;
+    }
+
+    /**
+     * Memória aproximada das colunas e dos dicionários, em bytes.
+     */
+    long estimarMemoria() {
+        long colunas = (long) total * (4 + 4 + 4 + 8);
+        long dicionarios = 0;
+        for (String nome : nomesOrgao) dicionarios += 40 + nome.length();
+        for (String nome : nomesCidade) dicionarios += 40 + nome.length() + 4;
+        return colunas + dicionarios;
+    }
+
+    /**
+     * Soma as viagens que passam no filtro, por grupo, ordenado pelo valor total (maior primeiro).
+     */
+    List<GrupoViagensDTO> agrupar(FiltroViagensDTO filtro, AgrupamentoViagens agrupamento) {
+        Filtro f = new Filtro(filtro);
+        if (f.vazio) return List.of();
+
+        int grupos = switch (agrupamento) {
+            case ORGAO -> nomesOrgao.length;
+            case CIDADE -> nomesCidade.length;
+            case UF -> ufs.length;
+            case MES -> totalMeses;
+            case TOTAL -> 1;
+        };
+
+        int partes = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism() * 4, total / LINHAS_MINIMAS_POR_PARTE));
+        Acumulador soma = IntStream.range(0, partes).parallel()
+                .mapToObj(parte -> {
+                    Acumulador acumulador = new Acumulador(grupos);
+                    varrer(acumulador, f, agrupamento, (int) ((long) total * parte / partes),
+                            (int) ((long) total * (parte + 1) / partes));
+                    return acumulador;
+                })
+                .reduce(Acumulador::juntar)
+                .orElseGet(() -> new Acumulador(grupos));
+
+        List<GrupoViagensDTO> resultado = new ArrayList<>();
+        for (int g = 0; g < grupos; g++) {
+            if (soma.quantidade[g] == 0) continue;
+            resultado.add(new GrupoViagensDTO(nomeGrupo(agrupamento, g), soma.quantidade[g],
+                    soma.centavos[g] / 100.0, soma.minimo[g] / 100.0, soma.maximo[g] / 100.0));
+        }
+        resultado.sort(Comparator.comparingDouble(GrupoViagensDTO::getValorTotal).reversed());
+        return resultado;
+    }
+
+    /**
+     * Varre as linhas [inicio, fim): só arrays de primitivos, sem criar objetos.
+     */
+    private void varrer(Acumulador acumulador, Filtro f, AgrupamentoViagens agrupamento, int inicio, int fim) {
+        for (int i = inicio; i < fim; i++) {
+            int mesViagem = mes[i];
+            long valor = centavos[i];
+            if (mesViagem < f.mesInicial || mesViagem > f.mesFinal) continue;
+            if (valor < f.centavosMinimo || valor > f.centavosMaximo) continue;
+            if (f.orgao >= 0 && orgao[i] != f.orgao) continue;
+            if (f.uf >= 0 && ufDaCidade[cidade[i]] != f.uf) continue;
+
+            int grupo = switch (agrupamento) {
+                case ORGAO -> orgao[i];
+                case CIDADE -> cidade[i];
+                case UF -> ufDaCidade[cidade[i]];
+                case MES -> mesViagem - mesMinimo;
+                case TOTAL -> 0;
+            };
+            acumulador.somar(grupo, valor);
+        }
+    }
+
+    private String nomeGrupo(AgrupamentoViagens agrupamento, int grupo) {
+        return switch (agrupamento) {
+            case ORGAO -> nomesOrgao[grupo];
+            case CIDADE -> nomesCidade[grupo] + "/" + ufs[ufDaCidade[grupo]];
+            case UF -> ufs[grupo];
+            case MES -> YearMonth.of(Math.floorDiv(mesMinimo + grupo, 12), Math.floorMod(mesMinimo + grupo, 12) + 1).toString();
+            case TOTAL -> "Total";
+        };
+    }
+
+    /**
+     * Filtro já traduzido para códigos, meses e centavos.
+     */
+    private class Filtro {
+        final int orgao;
+        final int uf;
+        final int mesInicial;
+        final int mesFinal;
+        final long centavosMinimo;
+        final long centavosMaximo;
+        final boolean vazio; // Órgão ou UF que não existe: nenhuma viagem passa
+
+        Filtro(FiltroViagensDTO filtro) {
+            Integer codigoOrgao = filtro.getNomeOrgao() == null ? Integer.valueOf(-1) : codigoPorNomeOrgao.get(filtro.getNomeOrgao());
+            Integer codigoUf = filtro.getUf() == null ? Integer.valueOf(-1) : codigoPorUf.get(filtro.getUf());
+            vazio = codigoOrgao == null || codigoUf == null;
+            orgao = codigoOrgao == null ? -1 : codigoOrgao;
+            uf = codigoUf == null ? -1 : codigoUf;
+            mesInicial = filtro.getMesInicial() == null ? Integer.MIN_VALUE : mesDe(filtro.getMesInicial());
+            mesFinal = filtro.getMesFinal() == null ? Integer.MAX_VALUE : mesDe(filtro.getMesFinal());
+            centavosMinimo = filtro.getValorMinimo() == null ? Long.MIN_VALUE : Math.round(filtro.getValorMinimo() * 100);
+            centavosMaximo = filtro.getValorMaximo() == null ? Long.MAX_VALUE : Math.round(filtro.getValorMaximo() * 100);
+        }
+    }
+
+    /**
+     * Totais por grupo de uma parte das linhas.
+     */
+    private static class Acumulador {
+        final long[] quantidade;
+        final long[] centavos;
+        final long[] minimo;
+        final long[] maximo;
+
+        Acumulador(int grupos) {
+            quantidade = new long[grupos];
+            centavos = new long[grupos];
+            minimo = new long[grupos];
+            maximo = new long[grupos];
+            Arrays.fill(minimo, Long.MAX_VALUE);
+            Arrays.fill(maximo, Long.MIN_VALUE);
+        }
+
+        void somar(int grupo, long valor) {
+            quantidade[grupo]++;
+            centavos[grupo] += valor;
+            if (valor < minimo[grupo]) minimo[grupo] = valor;
+            if (valor > maximo[grupo]) maximo[grupo] = valor;
+        }
+
+        Acumulador juntar(Acumulador outro) {
+            for (int g = 0; g < quantidade.length; g++) {
+                quantidade[g] += outro.quantidade[g];
+                centavos[g] += outro.centavos[g];
+                minimo[g] = Math.min(minimo[g], outro.minimo[g]);
+                maximo[g] = Math.max(maximo[g], outro.maximo[g]);
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.service;
+
+/**
+ * Como a importação lê o arquivo CSV.
+ */
+public enum TipoLeitorCsv {
+
+    /** OpenCSV: monta todas as colunas de cada linha (o leitor original). */
+    OPENCSV("OpenCSV"),
+
+    /** Leitor próprio sobre os bytes do arquivo (NIO); só cria as colunas usadas. */
+    BYTES("leitor de bytes"),
+
+    /** Arquivo mapeado na memória e dividido em trechos separados em paralelo (arquivos muito grandes). */
+    MAPEADO_PARALELO("leitor mapeado em paralelo");
+
+    private final String descricao;
+
+    TipoLeitorCsv(String descricao) {
+        this.descricao = descricao;
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+}
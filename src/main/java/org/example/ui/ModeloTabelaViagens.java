@@ -0,0 +1,221 @@
+package org.example.ui;
+
+import org.example.dto.CursorViagemDTO;
+import org.example.model.Viagem;
+import org.example.ui.controller.ControllerPrincipal;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.text.NumberFormat;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Modelo da tabela de viagens que apresenta a tabela viagem inteira como uma lista rolável,
+ * sem carregar tudo na memória.
+ * <p>
+ * As linhas são lidas em blocos de TAMANHO_BLOCO, só quando a tabela pede uma linha que ainda não
+ * está na memória (ou seja, quando ela aparece na tela). O bloco é buscado em segundo plano pelo
+ * controlador; até ele chegar, a linha mostra "Carregando...". O fim de cada bloco lido é o cursor do
+ * seguinte, então rolar em sequência é uma página por chave. Para pular direto para longe (arrastar
+ * a barra), o bloco é pedido pela posição: o serviço acha a data dela pela quantidade de viagens por dia
+ * e o banco desce no índice direto até lá. O total de linhas vem do resumo (resumo_geral), sem
+ * percorrer a tabela viagem.
+ * <p>
+ * No máximo MAXIMO_BLOCOS ficam na memória (os menos usados recentemente saem primeiro) e no máximo
+ * MAXIMO_CARREGANDO são buscados ao mesmo tempo: ao rolar rápido, os pedidos mais antigos (de linhas
+ * que já saíram da tela) são cancelados. A memória usada não depende do número de viagens, fora os
+ * cursores conhecidos (no máximo um por bloco).
+ * <p>
+ * Tudo aqui roda na thread da interface; só as consultas rodam fora dela.
+ */
+class ModeloTabelaViagens extends AbstractTableModel {
+
+    static final int TAMANHO_BLOCO = 200;
+    private static final int MAXIMO_BLOCOS = 50; // 10.000 linhas
+    private static final int MAXIMO_CARREGANDO = 6;
+
+    private static final String[] COLUNAS = {"Processo", "Data Início", "Órgão", "Destino", "Valor Total"};
+    private static final String CARREGANDO = "Carregando...";
+    private static final String ERRO = "Erro ao carregar";
+
+    private final ControllerPrincipal controlador;
+    private final Consumer<String> aoInformar;
+
+    private final NumberFormat formatadorValor = NumberFormat.getCurrencyInstance(Locale.forLanguageTag("pt-BR"));
+    private final DateTimeFormatter formatadorData = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private int totalLinhas = 0;
+
+    // Índice do bloco -> cursor logo antes dele (null para o bloco 0); vazio até saber o total
+    private final Map<Integer, CursorViagemDTO> cursores = new HashMap<>();
+
+    // Muda a cada recarga: blocos que chegam de uma recarga anterior são ignorados
+    private int geracao = 0;
+
+    // Índice do bloco -> viagens do bloco, em ordem de acesso (LRU)
+    private final Map<Integer, Viagem[]> blocos = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Viagem[]> maisAntigo) {
+            return size() > MAXIMO_BLOCOS;
+        }
+    };
+
+    // Blocos sendo buscados, do pedido mais antigo para o mais novo
+    private final Map<Integer, CompletableFuture<List<Viagem>>> carregando = new LinkedHashMap<>();
+    private final Set<Integer> comErro = new HashSet<>();
+
+    /**
+     * @param aoInformar Recebe mensagens de andamento e de erro para a barra de status
+     */
+    ModeloTabelaViagens(ControllerPrincipal controlador, Consumer<String> aoInformar) {
+        this.controlador = controlador;
+        this.aoInformar = aoInformar;
+    }
+
+    /**
+     * Esquece todas as linhas e lê de novo o total de viagens (ex: depois de uma importação).
+     */
+    void recarregar() {
+        int geracaoAtual = esvaziar();
+        aoInformar.accept("Carregando viagens...");
+
+        controlador.buscarTotalViagens()
+            .thenAccept(total -> SwingUtilities.invokeLater(() -> {
+                if (geracaoAtual == geracao) mostrar(null, total);
+            }))
+            .exceptionally(erro -> {
+                if (!ControllerPrincipal.foiSubstituida(erro)) {
+                    SwingUtilities.invokeLater(() -> aoInformar.accept("Erro ao carregar viagens: " + erro.getMessage()));
+                }
+                return null;
+            });
+    }
+
+    /**
+     * Esquece todas as linhas e mostra as viagens com o total já conhecido (ex: lido com o painel).
+     *
+     * @param primeiroBloco Primeiras viagens já lidas, para não buscá-las de novo; pode ser null
+     */
+    void recarregar(List<Viagem> primeiroBloco, long totalViagens) {
+        esvaziar();
+        mostrar(primeiroBloco, totalViagens);
+    }
+
+    private void mostrar(List<Viagem> primeiroBloco, long totalViagens) {
+        totalLinhas = (int) Math.min(Integer.MAX_VALUE, totalViagens);
+        cursores.put(0, null);
+        if (primeiroBloco != null && (primeiroBloco.size() == TAMANHO_BLOCO || primeiroBloco.size() == totalLinhas)) {
+            guardarBloco(0, primeiroBloco);
+        }
+        fireTableDataChanged();
+        aoInformar.accept(String.format("%,d viagens", totalLinhas));
+    }
+
+    private void guardarBloco(int indiceBloco, List<Viagem> viagens) {
+        blocos.put(indiceBloco, viagens.toArray(new Viagem[0]));
+        // O fim deste bloco é o começo do próximo
+        if (viagens.size() == TAMANHO_BLOCO) {
+            cursores.put(indiceBloco + 1, CursorViagemDTO.depoisDe(viagens.get(viagens.size() - 1)));
+        }
+    }
+
+    /**
+     * Tira todas as linhas da tabela (até a próxima recarga). Retorna a nova geração.
+     */
+    int esvaziar() {
+        geracao++;
+        carregando.values().forEach(pedido -> pedido.cancel(false));
+        carregando.clear();
+        blocos.clear();
+        comErro.clear();
+        cursores.clear();
+        totalLinhas = 0;
+        fireTableDataChanged();
+        return geracao;
+    }
+
+    @Override
+    public int getRowCount() {
+        return totalLinhas;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUNAS.length;
+    }
+
+    @Override
+    public String getColumnName(int coluna) {
+        return COLUNAS[coluna];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int coluna) {
+        return String.class;
+    }
+
+    @Override
+    public Object getValueAt(int linha, int coluna) {
+        int indiceBloco = linha / TAMANHO_BLOCO;
+        Viagem[] bloco = blocos.get(indiceBloco);
+        if (bloco == null) {
+            if (comErro.contains(indiceBloco)) return coluna == 0 ? ERRO : "";
+            carregarBloco(indiceBloco);
+            return coluna == 0 ? CARREGANDO : "";
+        }
+
+        int posicao = linha - indiceBloco * TAMANHO_BLOCO;
+        if (posicao >= bloco.length) return ""; // A tabela encolheu depois do índice (ex: viagens apagadas)
+
+        // Formata só as células visíveis, na hora de desenhar
+        Viagem viagem = bloco[posicao];
+        return switch (coluna) {
+            case 0 -> viagem.getIdProcesso();
+            case 1 -> viagem.getDataInicio().format(formatadorData);
+            case 2 -> viagem.getOrgao().getNome();
+            case 3 -> viagem.getDestino().toString();
+            default -> formatadorValor.format(viagem.getValorTotal());
+        };
+    }
+
+    private void carregarBloco(int indiceBloco) {
+        if (cursores.isEmpty() || carregando.containsKey(indiceBloco)) return;
+
+        // Rolando rápido: desiste dos pedidos mais antigos, cujas linhas já saíram da tela
+        Iterator<CompletableFuture<List<Viagem>>> antigos = carregando.values().iterator();
+        while (carregando.size() >= MAXIMO_CARREGANDO && antigos.hasNext()) {
+            antigos.next().cancel(false);
+            antigos.remove();
+        }
+
+        // Com o fim do bloco anterior já lido, continua dele; senão o serviço acha o bloco pela posição
+        int geracaoAtual = geracao;
+        CompletableFuture<List<Viagem>> pedido = controlador.buscarBlocoViagens(indiceBloco,
+                (long) indiceBloco * TAMANHO_BLOCO, cursores.get(indiceBloco), TAMANHO_BLOCO);
+        carregando.put(indiceBloco, pedido);
+
+        pedido.whenComplete((viagens, erro) -> SwingUtilities.invokeLater(() -> {
+            if (geracaoAtual != geracao || carregando.get(indiceBloco) != pedido) return;
+            carregando.remove(indiceBloco);
+            if (erro != null) {
+                if (ControllerPrincipal.foiSubstituida(erro)) return; // Cancelado: pede de novo se voltar à tela
+                comErro.add(indiceBloco); // Não insiste a cada repintura; a próxima recarga tenta de novo
+                aoInformar.accept("Erro ao carregar viagens: " + erro.getMessage());
+            } else {
+                guardarBloco(indiceBloco, viagens);
+            }
+            int inicio = indiceBloco * TAMANHO_BLOCO;
+            fireTableRowsUpdated(inicio, Math.min(totalLinhas, inicio + TAMANHO_BLOCO) - 1);
+        }));
+    }
+}
@@ -2,7 +2,7 @@ package org.example.ui;
 
 import org.example.dto.DestinoFrequenteDTO;
 import org.example.dto.OrgaoGastadorDTO;
-import org.example.model.Viagem;
+import org.example.dto.PainelDTO;
 import org.example.ui.controller.ControllerPrincipal;
 
 import javax.swing.*;
@@ -12,9 +12,9 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
 import java.text.NumberFormat;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * Interface gráfica principal da aplicação AuditGov.
@@ -24,11 +24,12 @@ public class TelaPrincipal extends JFrame {
 
     private final ControllerPrincipal controlador;
     private JTable tabelaViagens;
-    private DefaultTableModel modeloTabela;
+    private ModeloTabelaViagens modeloTabela;
     private JProgressBar progressBar;
     private JLabel statusLabel;
     private JLabel estatisticasLabel;
     private JButton btnImportar;
+    private JButton btnCancelarImportacao;
     private JButton btnAtualizar;
     private JButton btnEstatisticas;
     private JButton btnRelatorioGastadores;
@@ -39,8 +40,7 @@ public class TelaPrincipal extends JFrame {
     private JTable tabelaDestinos;
     private DefaultTableModel modeloTabelaDestinos;
     
-    private static final int LIMITE_REGISTROS = 100;
-    private int paginaAtual = 0;
+    private JLabel labelTotalViagens;
 
     public TelaPrincipal() {
         this.controlador = new ControllerPrincipal();
@@ -51,11 +51,8 @@ public class TelaPrincipal extends JFrame {
         organizarLayout();
         configurarEventos();
         
-        // Carrega dados iniciais
-        carregarViagens();
-        atualizarEstatisticas();
-        carregarRelatorioGastadores();
-        carregarRelatorioDestinos();
+        // Carrega dados iniciais (uma única consulta ao banco)
+        carregarPainel();
     }
 
     private void configurarJanela() {
@@ -70,14 +67,8 @@ public class TelaPrincipal extends JFrame {
         // Painel superior - Importação
         JPanel painelImportacao = criarPainelImportacao();
         
-        // Tabela de viagens
-        String[] colunas = {"Processo", "Data Início", "Órgão", "Destino", "Valor Total"};
-        modeloTabela = new DefaultTableModel(colunas, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        // Tabela de viagens: a tabela viagem inteira, rolável, lida em blocos sob demanda
+        modeloTabela = new ModeloTabelaViagens(controlador, mensagem -> labelTotalViagens.setText(mensagem));
         tabelaViagens = new JTable(modeloTabela);
         tabelaViagens.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         tabelaViagens.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
@@ -121,6 +112,10 @@ public class TelaPrincipal extends JFrame {
         btnImportar = new JButton("Importar CSV");
         btnImportar.setPreferredSize(new Dimension(150, 35));
         btnImportar.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 12));
+
+        btnCancelarImportacao = new JButton("Cancelar Importação");
+        btnCancelarImportacao.setPreferredSize(new Dimension(170, 35));
+        btnCancelarImportacao.setEnabled(false); // Só durante uma importação
         
         btnAtualizar = new JButton("Atualizar Lista");
         btnAtualizar.setPreferredSize(new Dimension(150, 35));
@@ -128,8 +123,8 @@ public class TelaPrincipal extends JFrame {
         JButton btnApagar = new JButton("Apagar viagens da tela");
         btnApagar.setPreferredSize(new Dimension(150,35));
         btnApagar.addActionListener(e -> {
-            DefaultTableModel model = (DefaultTableModel) tabelaViagens.getModel();
-            model.setRowCount(0); 
+            modeloTabela.esvaziar();
+            labelTotalViagens.setText("Tabela vazia - use \"Atualizar Lista\" para ver as viagens");
         });
 
         btnEstatisticas = new JButton("Atualizar Estatísticas");
@@ -142,6 +137,7 @@ public class TelaPrincipal extends JFrame {
         btnRelatorioDestinos.setPreferredSize(new Dimension(160, 35));
         
         painelBotoes.add(btnImportar);
+        painelBotoes.add(btnCancelarImportacao);
         painelBotoes.add(btnAtualizar);
         painelBotoes.add(btnEstatisticas);
         painelBotoes.add(btnRelatorioGastadores);
@@ -177,26 +173,9 @@ public class TelaPrincipal extends JFrame {
         JPanel painel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
         painel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         
-        JButton btnAnterior = new JButton("◀ Anterior");
-        JButton btnProximo = new JButton("Próximo ▶");
-        JLabel labelPagina = new JLabel("Página: 1");
-        labelPagina.setName("labelPagina");
-        
-        btnAnterior.addActionListener(e -> {
-            if (paginaAtual > 0) {
-                paginaAtual--;
-                carregarViagens();
-            }
-        });
-        
-        btnProximo.addActionListener(e -> {
-            paginaAtual++;
-            carregarViagens();
-        });
-        
-        painel.add(btnAnterior);
-        painel.add(labelPagina);
-        painel.add(btnProximo);
+        // A tabela rola por todas as viagens: aqui fica só o total (e o andamento do carregamento)
+        labelTotalViagens = new JLabel("Carregando viagens...");
+        painel.add(labelTotalViagens);
         
         return painel;
     }
@@ -218,12 +197,20 @@ public class TelaPrincipal extends JFrame {
                 importarArquivo();
             }
         });
+
+        btnCancelarImportacao.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                btnCancelarImportacao.setEnabled(false);
+                statusLabel.setText("Cancelando importação...");
+                controlador.cancelarImportacao();
+            }
+        });
         
         btnAtualizar.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                paginaAtual = 0;
-                carregarViagens();
+                modeloTabela.recarregar();
                 atualizarEstatisticas();
             }
         });
@@ -251,16 +238,17 @@ public class TelaPrincipal extends JFrame {
     }
 
     private void importarArquivo() {
-        fileChooser.setDialogTitle("Selecione o arquivo CSV para importar");
+        fileChooser.setDialogTitle("Selecione o arquivo CSV (ou o ZIP do Portal da Transparência) para importar");
         fileChooser.setFileFilter(new javax.swing.filechooser.FileFilter() {
             @Override
             public boolean accept(File f) {
-                return f.isDirectory() || f.getName().toLowerCase().endsWith(".csv");
+                String nome = f.getName().toLowerCase();
+                return f.isDirectory() || nome.endsWith(".csv") || nome.endsWith(".zip");
             }
 
             @Override
             public String getDescription() {
-                return "Arquivos CSV (*.csv)";
+                return "Arquivos CSV ou ZIP (*.csv, *.zip)";
             }
         });
         
@@ -270,23 +258,32 @@ public class TelaPrincipal extends JFrame {
             String caminho = arquivo.getAbsolutePath();
             
             btnImportar.setEnabled(false);
+            btnCancelarImportacao.setEnabled(true);
             statusLabel.setText("Importando arquivo: " + arquivo.getName());
             
             controlador.importarArquivo(caminho, progressBar, statusLabel)
                 .thenAccept(mensagem -> {
                     SwingUtilities.invokeLater(() -> {
                         btnImportar.setEnabled(true);
+                        btnCancelarImportacao.setEnabled(false);
                         statusLabel.setText(mensagem);
                         progressBar.setValue(0);
                         progressBar.setString("Concluído");
                         
-                        if (mensagem.contains("sucesso")) {
+                        if (mensagem.startsWith("Importação cancelada")) {
+                            // O que já foi confirmado fica no banco: atualiza as listas
+                            progressBar.setString("Cancelado");
+                            JOptionPane.showMessageDialog(this, 
+                                mensagem, 
+                                "Importação Cancelada", 
+                                JOptionPane.INFORMATION_MESSAGE);
+                            carregarPainel();
+                        } else if (mensagem.contains("sucesso")) {
                             JOptionPane.showMessageDialog(this, 
                                 mensagem, 
                                 "Importação Concluída", 
                                 JOptionPane.INFORMATION_MESSAGE);
-                            carregarViagens();
-                            atualizarEstatisticas();
+                            carregarPainel();
                         } else {
                             JOptionPane.showMessageDialog(this, 
                                 mensagem, 
@@ -298,6 +295,7 @@ public class TelaPrincipal extends JFrame {
                 .exceptionally(throwable -> {
                     SwingUtilities.invokeLater(() -> {
                         btnImportar.setEnabled(true);
+                        btnCancelarImportacao.setEnabled(false);
                         statusLabel.setText("Erro: " + throwable.getMessage());
                         progressBar.setValue(0);
                         JOptionPane.showMessageDialog(this, 
@@ -310,23 +308,34 @@ public class TelaPrincipal extends JFrame {
         }
     }
 
-    private void carregarViagens() {
-        statusLabel.setText("Carregando viagens...");
-        modeloTabela.setRowCount(0);
-        
-        controlador.buscarViagens(LIMITE_REGISTROS, paginaAtual * LIMITE_REGISTROS)
-            .thenAccept(viagens -> {
-                SwingUtilities.invokeLater(() -> {
-                    preencherTabela(viagens);
-                    atualizarLabelPagina();
-                    statusLabel.setText("Viagens carregadas: " + viagens.size());
-                });
+    /**
+     * Carrega estatísticas, primeiro bloco de viagens e os dois relatórios numa só consulta
+     * (usado ao abrir a tela e depois de uma importação). Depois a tabela busca o resto sob demanda.
+     * Em paralelo, relê a cópia em memória da análise se os dados mudaram.
+     */
+    private void carregarPainel() {
+        statusLabel.setText("Carregando...");
+        estatisticasLabel.setText("Carregando...");
+        modeloTabela.esvaziar();
+
+        // Cópia em memória para a análise, em segundo plano (lê a tabela inteira)
+        controlador.carregarAnalise()
+            .exceptionally(throwable -> {
+                System.err.println(throwable.getMessage());
+                return null;
+            });
+
+        controlador.buscarPainel(ModeloTabelaViagens.TAMANHO_BLOCO)
+            .thenAccept(painel -> {
+                SwingUtilities.invokeLater(() -> mostrarPainel(painel));
             })
             .exceptionally(throwable -> {
+                if (ControllerPrincipal.foiSubstituida(throwable)) return null; // Já há uma consulta mais nova
                 SwingUtilities.invokeLater(() -> {
                     statusLabel.setText("Erro ao carregar: " + throwable.getMessage());
+                    estatisticasLabel.setText("Erro ao carregar estatísticas");
                     JOptionPane.showMessageDialog(this, 
-                        "Erro ao carregar viagens: " + throwable.getMessage(), 
+                        "Erro ao carregar o painel: " + throwable.getMessage(), 
                         "Erro", 
                         JOptionPane.ERROR_MESSAGE);
                 });
@@ -334,20 +343,12 @@ public class TelaPrincipal extends JFrame {
             });
     }
 
-    private void preencherTabela(List<Viagem> viagens) {
-        NumberFormat formatador = NumberFormat.getCurrencyInstance(Locale.forLanguageTag("pt-BR"));
-        DateTimeFormatter formatadorData = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-        
-        for (Viagem viagem : viagens) {
-            Object[] linha = {
-                viagem.getIdProcesso(),
-                viagem.getDataInicio().format(formatadorData),
-                viagem.getOrgao().getNome(),
-                viagem.getDestino().toString(),
-                formatador.format(viagem.getValorTotal())
-            };
-            modeloTabela.addRow(linha);
-        }
+    private void mostrarPainel(PainelDTO painel) {
+        mostrarEstatisticas(painel.getEstatisticas());
+        mostrarGastadores(painel.getMaioresGastadores());
+        mostrarDestinos(painel.getDestinosFrequentes());
+        modeloTabela.recarregar(painel.getPrimeiraPagina(), painel.getTotalViagens());
+        statusLabel.setText("Sistema pronto");
     }
 
     private void atualizarEstatisticas() {
@@ -355,25 +356,10 @@ public class TelaPrincipal extends JFrame {
         
         controlador.buscarEstatisticas()
             .thenAccept(stats -> {
-                SwingUtilities.invokeLater(() -> {
-                    NumberFormat formatador = NumberFormat.getCurrencyInstance(Locale.forLanguageTag("pt-BR"));
-                    NumberFormat formatadorNumero = NumberFormat.getNumberInstance(Locale.forLanguageTag("pt-BR"));
-                    
-                    long totalViagens = ((Number) stats.get("totalViagens")).longValue();
-                    double valorTotal = ((Number) stats.get("valorTotal")).doubleValue();
-                    double valorMedio = ((Number) stats.get("valorMedio")).doubleValue();
-                    
-                    String texto = String.format(
-                        "Total: %s viagens | Valor Total: %s | Média: %s",
-                        formatadorNumero.format(totalViagens),
-                        formatador.format(valorTotal),
-                        formatador.format(valorMedio)
-                    );
-                    
-                    estatisticasLabel.setText(texto);
-                });
+                SwingUtilities.invokeLater(() -> mostrarEstatisticas(stats));
             })
             .exceptionally(throwable -> {
+                if (ControllerPrincipal.foiSubstituida(throwable)) return null; // Já há uma consulta mais nova
                 SwingUtilities.invokeLater(() -> {
                     estatisticasLabel.setText("Erro ao carregar estatísticas");
                 });
@@ -381,6 +367,24 @@ public class TelaPrincipal extends JFrame {
             });
     }
 
+    private void mostrarEstatisticas(Map<String, Object> stats) {
+        NumberFormat formatador = NumberFormat.getCurrencyInstance(Locale.forLanguageTag("pt-BR"));
+        NumberFormat formatadorNumero = NumberFormat.getNumberInstance(Locale.forLanguageTag("pt-BR"));
+        
+        long totalViagens = ((Number) stats.get("totalViagens")).longValue();
+        double valorTotal = ((Number) stats.get("valorTotal")).doubleValue();
+        double valorMedio = ((Number) stats.get("valorMedio")).doubleValue();
+        
+        String texto = String.format(
+            "Total: %s viagens | Valor Total: %s | Média: %s",
+            formatadorNumero.format(totalViagens),
+            formatador.format(valorTotal),
+            formatador.format(valorMedio)
+        );
+        
+        estatisticasLabel.setText(texto);
+    }
+
     private JTabbedPane criarPainelRelatorios() {
         JTabbedPane tabbedPane = new JTabbedPane();
         tabbedPane.setPreferredSize(new Dimension(450, 0));
@@ -507,15 +511,7 @@ public class TelaPrincipal extends JFrame {
         controlador.buscarTop5MaioresGastadores()
             .thenAccept(gastadores -> {
                 SwingUtilities.invokeLater(() -> {
-                    int posicao = 1;
-                    for (OrgaoGastadorDTO gastador : gastadores) {
-                        Object[] linha = {
-                            posicao++,
-                            gastador.getNomeOrgao(),
-                            gastador.getValorTotal()
-                        };
-                        modeloTabelaGastadores.addRow(linha);
-                    }
+                    mostrarGastadores(gastadores);
                     
                     if (gastadores.isEmpty()) {
                         statusLabel.setText("Nenhum dado encontrado para o relatório");
@@ -525,6 +521,7 @@ public class TelaPrincipal extends JFrame {
                 });
             })
             .exceptionally(throwable -> {
+                if (ControllerPrincipal.foiSubstituida(throwable)) return null; // Já há uma consulta mais nova
                 SwingUtilities.invokeLater(() -> {
                     statusLabel.setText("Erro ao carregar relatório: " + throwable.getMessage());
                     JOptionPane.showMessageDialog(this, 
@@ -536,6 +533,19 @@ public class TelaPrincipal extends JFrame {
             });
     }
 
+    private void mostrarGastadores(List<OrgaoGastadorDTO> gastadores) {
+        modeloTabelaGastadores.setRowCount(0);
+        int posicao = 1;
+        for (OrgaoGastadorDTO gastador : gastadores) {
+            Object[] linha = {
+                posicao++,
+                gastador.getNomeOrgao(),
+                gastador.getValorTotal()
+            };
+            modeloTabelaGastadores.addRow(linha);
+        }
+    }
+
     private void carregarRelatorioDestinos() {
         statusLabel.setText("Carregando relatório de destinos frequentes...");
         modeloTabelaDestinos.setRowCount(0);
@@ -543,16 +553,7 @@ public class TelaPrincipal extends JFrame {
         controlador.buscarTop10DestinosFrequentes()
             .thenAccept(destinos -> {
                 SwingUtilities.invokeLater(() -> {
-                    int posicao = 1;
-                    for (DestinoFrequenteDTO destino : destinos) {
-                        Object[] linha = {
-                            posicao++,
-                            destino.getNomeCidade(),
-                            destino.getUf(),
-                            destino.getQuantidadeViagens()
-                        };
-                        modeloTabelaDestinos.addRow(linha);
-                    }
+                    mostrarDestinos(destinos);
                     
                     if (destinos.isEmpty()) {
                         statusLabel.setText("Nenhum dado encontrado para o relatório de destinos");
@@ -562,6 +563,7 @@ public class TelaPrincipal extends JFrame {
                 });
             })
             .exceptionally(throwable -> {
+                if (ControllerPrincipal.foiSubstituida(throwable)) return null; // Já há uma consulta mais nova
                 SwingUtilities.invokeLater(() -> {
                     statusLabel.setText("Erro ao carregar relatório de destinos: " + throwable.getMessage());
                     JOptionPane.showMessageDialog(this, 
@@ -573,16 +575,17 @@ public class TelaPrincipal extends JFrame {
             });
     }
 
-    private void atualizarLabelPagina() {
-        for (Component comp : getContentPane().getComponents()) {
-            if (comp instanceof JPanel) {
-                for (Component subComp : ((JPanel) comp).getComponents()) {
-                    if (subComp instanceof JLabel && "labelPagina".equals(subComp.getName())) {
-                        ((JLabel) subComp).setText("Página: " + (paginaAtual + 1));
-                        break;
-                    }
-                }
-            }
+    private void mostrarDestinos(List<DestinoFrequenteDTO> destinos) {
+        modeloTabelaDestinos.setRowCount(0);
+        int posicao = 1;
+        for (DestinoFrequenteDTO destino : destinos) {
+            Object[] linha = {
+                posicao++,
+                destino.getNomeCidade(),
+                destino.getUf(),
+                destino.getQuantidadeViagens()
+            };
+            modeloTabelaDestinos.addRow(linha);
         }
     }
 
@@ -1,9 +1,19 @@
 package org.example.ui.controller;
 
+import org.example.dto.ProgressoImportacaoDTO;
+import org.example.service.AgrupamentoViagens;
+import org.example.service.CancelamentoImportacao;
+import org.example.service.ConfiguracaoImportacao;
+import org.example.service.ImportacaoCanceladaException;
 import org.example.service.ServicoConsulta;
 import org.example.service.ServicoImportacao;
+import org.example.dto.CursorViagemDTO;
+import org.example.dto.MetricasCacheDTO;
 import org.example.dto.DestinoFrequenteDTO;
+import org.example.dto.FiltroViagensDTO;
+import org.example.dto.GrupoViagensDTO;
 import org.example.dto.OrgaoGastadorDTO;
+import org.example.dto.PainelDTO;
 import org.example.model.Viagem;
 
 import javax.swing.*;
@@ -11,6 +21,8 @@ import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Controlador principal que gerencia as ações da interface.
@@ -18,7 +30,25 @@ import java.util.concurrent.CompletableFuture;
  */
 public class ControllerPrincipal {
 
+    // Atualizações da barra de progresso durante a importação: até 10 por segundo
+    private static final long INTERVALO_PROGRESSO_MS = 100;
+
+    // Visões da tela: uma consulta nova de uma visão cancela a anterior da mesma visão
+    private static final String VISAO_VIAGENS = "viagens";
+    private static final String VISAO_ESTATISTICAS = "estatisticas";
+    private static final String VISAO_CONTAGEM = "contagem";
+    private static final String VISAO_GASTADORES = "gastadores";
+    private static final String VISAO_DESTINOS = "destinos";
+    private static final String VISAO_PAINEL = "painel";
+    private static final String VISAO_TOTAL_VIAGENS = "totalViagens";
+    private static final String VISAO_BLOCO_VIAGENS = "blocoViagens-"; // + índice do bloco
+    private static final String VISAO_ANALISE = "analise";
+
     private final ServicoConsulta servicoConsulta;
+    private final ExecutorConsultas consultas = new ExecutorConsultas();
+
+    // Importação em andamento (null se não houver), para o botão de cancelar
+    private volatile CancelamentoImportacao importacaoAtual;
 
     public ControllerPrincipal() {
         this.servicoConsulta = new ServicoConsulta();
@@ -26,20 +56,38 @@ public class ControllerPrincipal {
 
     /**
      * Executa a importação de forma assíncrona e atualiza o progresso.
+     * <p>
+     * A importação entrega o andamento numa thread própria; aqui só a fotografia mais recente
+     * é guardada, e um único invokeLater fica pendente por vez. Se a tela atrasar, as
+     * fotografias intermediárias são descartadas em vez de se acumularem na fila de eventos.
+     * <p>
+     * Pode ser interrompida com cancelarImportacao(); nesse caso a mensagem começa com "Importação cancelada".
      */
     public CompletableFuture<String> importarArquivo(String caminhoArquivo, 
                                                       JProgressBar progressBar, 
                                                       JLabel statusLabel) {
-        return CompletableFuture.supplyAsync(() -> {
+        AtomicReference<ProgressoImportacaoDTO> pendente = new AtomicReference<>();
+        ConfiguracaoImportacao config = new ConfiguracaoImportacao();
+        config.setIntervaloProgressoMs(INTERVALO_PROGRESSO_MS);
+        CancelamentoImportacao cancelamento = new CancelamentoImportacao();
+        config.setCancelamento(cancelamento);
+        importacaoAtual = cancelamento;
+        config.setOuvinteProgresso(progresso -> {
+            if (pendente.getAndSet(progresso) == null) {
+                SwingUtilities.invokeLater(() -> mostrarProgresso(pendente.getAndSet(null), progressBar, statusLabel));
+            }
+        });
+
+        return ExecutorConsultas.executarEmThreadPropria("auditgov-importacao", () -> {
             try {
-                // Atualiza status
+                // Atualiza status (indeterminado até chegar o primeiro progresso)
                 SwingUtilities.invokeLater(() -> {
                     statusLabel.setText("Importando...");
                     progressBar.setIndeterminate(true);
                 });
 
                 // Executa importação
-                ServicoImportacao.excetuarImportacao(caminhoArquivo);
+                ServicoImportacao.excetuarImportacao(caminhoArquivo, config);
 
                 SwingUtilities.invokeLater(() -> {
                     progressBar.setIndeterminate(false);
@@ -47,103 +95,169 @@ public class ControllerPrincipal {
                 });
 
                 return "Importação concluída com sucesso!";
+            } catch (ImportacaoCanceladaException e) {
+                return e.getMessage();
             } catch (SQLException e) {
                 return "Erro na importação: " + e.getMessage();
             } catch (Exception e) {
                 return "Erro inesperado: " + e.getMessage();
+            } finally {
+                if (importacaoAtual == cancelamento) importacaoAtual = null;
             }
         });
     }
 
+    /**
+     * Pede o cancelamento da importação em andamento. Retorna na hora; o CompletableFuture de
+     * importarArquivo termina quando os gravadores tiverem desfeito o que não foi confirmado.
+     */
+    public void cancelarImportacao() {
+        CancelamentoImportacao cancelamento = importacaoAtual;
+        if (cancelamento != null) cancelamento.cancelar();
+    }
+
+    /**
+     * true se a consulta falhou só porque uma consulta mais nova da mesma visão a substituiu
+     * (ex: cliques rápidos na paginação). A tela deve simplesmente ignorar essa falha.
+     */
+    public static boolean foiSubstituida(Throwable erro) {
+        return ExecutorConsultas.foiSubstituida(erro);
+    }
+
+    /**
+     * Mostra uma fotografia do andamento da importação (na thread da interface).
+     */
+    private static void mostrarProgresso(ProgressoImportacaoDTO progresso, JProgressBar progressBar, JLabel statusLabel) {
+        if (progresso == null) return;
+
+        int percentual = progresso.getPercentual();
+        progressBar.setIndeterminate(percentual < 0);
+        if (percentual >= 0) {
+            progressBar.setValue(percentual);
+            progressBar.setString(percentual + "%");
+        }
+
+        String restante = progresso.getSegundosRestantes() >= 0 && !progresso.isConcluida()
+                ? " - restam " + formatarTempo(progresso.getSegundosRestantes())
+                : "";
+        statusLabel.setText(String.format("Importando: %,d linhas lidas, %,d confirmadas, %,d rejeitadas - %,.0f linhas/s%s",
+                progresso.getLinhasLidas(), progresso.getLinhasConfirmadas(), progresso.getLinhasRejeitadas(),
+                progresso.getLinhasPorSegundo(), restante));
+    }
+
+    private static String formatarTempo(double segundos) {
+        long total = Math.round(segundos);
+        return total >= 60 ? String.format("%dmin %02ds", total / 60, total % 60) : total + "s";
+    }
+
     /**
      * Busca viagens de forma assíncrona.
      */
     public CompletableFuture<List<Viagem>> buscarViagens(int limite, int offset) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return servicoConsulta.buscarViagens(limite, offset);
-            } catch (SQLException e) {
-                throw new RuntimeException("Erro ao buscar viagens: " + e.getMessage(), e);
-            }
-        });
+        return consultas.executar(VISAO_VIAGENS, "Erro ao buscar viagens", () -> servicoConsulta.buscarViagens(limite, offset));
+    }
+
+    /**
+     * Busca a página de viagens seguinte ao cursor de forma assíncrona (cursor null = primeira página).
+     */
+    public CompletableFuture<List<Viagem>> buscarViagens(CursorViagemDTO cursor, int limite) {
+        return consultas.executar(VISAO_VIAGENS, "Erro ao buscar viagens", () -> servicoConsulta.buscarViagens(cursor, limite));
+    }
+
+    /**
+     * Acertos, faltas, despejos e invalidações do cache de consultas.
+     */
+    public MetricasCacheDTO getMetricasCache() {
+        return servicoConsulta.getMetricasCache();
+    }
+
+    /**
+     * Busca o painel inicial (estatísticas, primeira página e relatórios) de forma assíncrona,
+     * numa única consulta ao banco.
+     */
+    public CompletableFuture<PainelDTO> buscarPainel(int limiteViagens) {
+        return consultas.executar(VISAO_PAINEL, "Erro ao carregar o painel", () -> servicoConsulta.buscarPainel(limiteViagens));
+    }
+
+    /**
+     * Busca o total de viagens (do resumo) de forma assíncrona (tabela rolável).
+     */
+    public CompletableFuture<Long> buscarTotalViagens() {
+        return consultas.executar(VISAO_TOTAL_VIAGENS, "Erro ao buscar viagens", () -> servicoConsulta.buscarTotalViagens());
+    }
+
+    /**
+     * Busca um bloco de viagens de forma assíncrona (tabela rolável): as tamanhoBloco viagens a partir
+     * da posição primeiraLinha, com o cursor logo antes dela se for conhecido (senão null).
+     * Cada bloco é uma visão separada: pedir o mesmo bloco de novo cancela o pedido anterior dele, não o dos outros.
+     */
+    public CompletableFuture<List<Viagem>> buscarBlocoViagens(int indiceBloco, long primeiraLinha, CursorViagemDTO cursorInicio,
+                                                              int tamanhoBloco) {
+        return consultas.executar(VISAO_BLOCO_VIAGENS + indiceBloco, "Erro ao buscar viagens",
+                () -> servicoConsulta.buscarBlocoViagens(primeiraLinha, cursorInicio, tamanhoBloco));
     }
 
     /**
      * Busca estatísticas de forma assíncrona.
      */
     public CompletableFuture<Map<String, Object>> buscarEstatisticas() {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return servicoConsulta.buscarEstatisticas();
-            } catch (SQLException e) {
-                throw new RuntimeException("Erro ao buscar estatísticas: " + e.getMessage(), e);
-            }
-        });
+        return consultas.executar(VISAO_ESTATISTICAS, "Erro ao buscar estatísticas", () -> servicoConsulta.buscarEstatisticas());
     }
 
     /**
      * Conta total de viagens de forma assíncrona.
      */
     public CompletableFuture<Integer> contarTotalViagens() {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return servicoConsulta.contarTotalViagens();
-            } catch (SQLException e) {
-                throw new RuntimeException("Erro ao contar viagens: " + e.getMessage(), e);
-            }
-        });
+        return consultas.executar(VISAO_CONTAGEM, "Erro ao contar viagens", () -> servicoConsulta.contarTotalViagens());
     }
 
     /**
      * Busca maiores gastadores de forma assíncrona.
      */
     public CompletableFuture<List<OrgaoGastadorDTO>> buscarMaioresGastadores(int quantidade) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return servicoConsulta.buscarMaioresGastadores(quantidade);
-            } catch (SQLException e) {
-                throw new RuntimeException("Erro ao buscar maiores gastadores: " + e.getMessage(), e);
-            }
-        });
+        return consultas.executar(VISAO_GASTADORES, "Erro ao buscar maiores gastadores", () -> servicoConsulta.buscarMaioresGastadores(quantidade));
     }
 
     /**
      * Busca top 5 maiores gastadores de forma assíncrona.
      */
     public CompletableFuture<List<OrgaoGastadorDTO>> buscarTop5MaioresGastadores() {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return servicoConsulta.buscarTop5MaioresGastadores();
-            } catch (SQLException e) {
-                throw new RuntimeException("Erro ao buscar maiores gastadores: " + e.getMessage(), e);
-            }
-        });
+        return consultas.executar(VISAO_GASTADORES, "Erro ao buscar maiores gastadores", () -> servicoConsulta.buscarTop5MaioresGastadores());
     }
 
     /**
      * Busca destinos frequentes de forma assíncrona.
      */
     public CompletableFuture<List<DestinoFrequenteDTO>> buscarDestinosFrequentes(int quantidade) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return servicoConsulta.buscarDestinosFrequentes(quantidade);
-            } catch (SQLException e) {
-                throw new RuntimeException("Erro ao buscar destinos frequentes: " + e.getMessage(), e);
-            }
-        });
+        return consultas.executar(VISAO_DESTINOS, "Erro ao buscar destinos frequentes", () -> servicoConsulta.buscarDestinosFrequentes(quantidade));
     }
 
     /**
      * Busca top 10 destinos frequentes de forma assíncrona.
      */
     public CompletableFuture<List<DestinoFrequenteDTO>> buscarTop10DestinosFrequentes() {
-        return CompletableFuture.supplyAsync(() -> {
+        return consultas.executar(VISAO_DESTINOS, "Erro ao buscar destinos frequentes", () -> servicoConsulta.buscarTop10DestinosFrequentes());
+    }
+
+    /**
+     * Lê (ou relê, se uma importação mudou os dados) a cópia em memória usada por agruparViagens,
+     * numa thread própria: a leitura da tabela inteira não tem o prazo das consultas da tela.
+     * Retorna quantas viagens a cópia tem.
+     */
+    public CompletableFuture<Integer> carregarAnalise() {
+        return ExecutorConsultas.executarEmThreadPropria("auditgov-analise", () -> {
             try {
-                return servicoConsulta.buscarTop10DestinosFrequentes();
+                return servicoConsulta.carregarSnapshotViagens();
             } catch (SQLException e) {
-                throw new RuntimeException("Erro ao buscar destinos frequentes: " + e.getMessage(), e);
+                throw new CompletionException("Erro ao carregar as viagens para a análise: " + e.getMessage(), e);
             }
         });
     }
-}
 
+    /**
+     * Agrupa as viagens do filtro de forma assíncrona (análise em memória, ver carregarAnalise).
+     */
+    public CompletableFuture<List<GrupoViagensDTO>> agruparViagens(FiltroViagensDTO filtro, AgrupamentoViagens agrupamento) {
+        return consultas.executar(VISAO_ANALISE, "Erro ao analisar viagens", () -> servicoConsulta.agruparViagens(filtro, agrupamento));
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.ui.controller;
+
+import org.example.database.ConexaoFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Executa as consultas da tela fora da thread da interface.
+ * <p>
+ * Cada consulta roda numa thread virtual (JDBC bloqueia esperando o banco; uma thread virtual
+ * parada não ocupa uma thread do sistema, ao contrário do ForkJoinPool.commonPool, que tem
+ * uma thread por núcleo e é feito para cálculo). Um semáforo limita as consultas simultâneas
+ * ao tamanho do pool das consultas curtas (a importação usa o outro pool, ver ConexaoFactory.getConexaoLonga):
+ * as que passam do limite esperam aqui, sem segurar conexão.
+ * <p>
+ * Cada consulta tem um prazo (PRAZO_MS) e pertence a uma visão da tela ("viagens", "estatisticas"...).
+ * Uma consulta nova da mesma visão cancela a anterior: se ela ainda não começou, nem vai ao banco;
+ * se já está no banco, o resultado é descartado quando chegar. A thread nunca é interrompida (numa
+ * thread virtual isso fecha o socket e quebra a conexão do pool). Quando o prazo vence, a consulta
+ * é interrompida no servidor (ConexaoFactory.cancelarConsultaEmAndamento), para que a conexão e a
+ * vaga no semáforo sejam liberadas na hora. Quem recebe o CompletableFuture deve ignorar falhas em
+ * que foiSubstituida(erro) é true.
+ */
+final class ExecutorConsultas {
+
+    // Pode ser trocado sem recompilar com -Dauditgov.consultas.max=4 etc.
+    private static final int MAXIMO_SIMULTANEAS = Integer.getInteger("auditgov.consultas.max",
+            ConexaoFactory.getTamanhoMaximoPool());
+    private static final long PRAZO_MS = Long.getLong("auditgov.consultas.prazoMs", 30_000L);
+
+    @FunctionalInterface
+    interface Consulta<T> {
+        T executar() throws SQLException;
+    }
+
+    private final ExecutorService threads =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("auditgov-consulta-", 1).factory());
+    private final Semaphore permissoes = new Semaphore(Math.max(1, MAXIMO_SIMULTANEAS), true);
+    private final ScheduledThreadPoolExecutor prazos = new ScheduledThreadPoolExecutor(1, tarefa -> {
+        Thread thread = new Thread(tarefa, "auditgov-consulta-prazo");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Visão -> consulta mais recente dela
+    private final Map<String, CompletableFuture<?>> ultimas = new ConcurrentHashMap<>();
+
+    ExecutorConsultas() {
+        prazos.setRemoveOnCancelPolicy(true); // Consultas que terminam no prazo não deixam agendamento para trás
+    }
+
+    /**
+     * Agenda a consulta da visão, cancelando a consulta anterior da mesma visão.
+     *
+     * @param descricaoErro Início da mensagem se a consulta falhar (ex: "Erro ao buscar viagens")
+     */
+    <T> CompletableFuture<T> executar(String visao, String descricaoErro, Consulta<T> consulta) {
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+
+        CompletableFuture<?> anterior = ultimas.put(visao, resultado);
+        if (anterior != null) anterior.cancel(false);
+
+        // Conexões que a consulta pegou do pool, para cancelar no banco se o prazo vencer
+        Set<Connection> conexoes = ConcurrentHashMap.newKeySet();
+
+        ScheduledFuture<?> prazo = prazos.schedule(() -> {
+            if (resultado.completeExceptionally(new RuntimeException(
+                    descricaoErro + ": o banco não respondeu em " + PRAZO_MS / 1000 + " s", new TimeoutException()))) {
+                threads.execute(() -> cancelarNoBanco(conexoes)); // KILL QUERY abre outra conexão: fora da thread dos prazos
+            }
+        }, PRAZO_MS, TimeUnit.MILLISECONDS);
+        resultado.whenComplete((valor, erro) -> {
+            prazo.cancel(false);
+            ultimas.remove(visao, resultado);
+        });
+
+        threads.execute(() -> executar(resultado, descricaoErro, consulta, conexoes));
+        return resultado;
+    }
+
+    private <T> void executar(CompletableFuture<T> resultado, String descricaoErro, Consulta<T> consulta,
+                              Set<Connection> conexoes) {
+        try {
+            permissoes.acquire();
+        } catch (InterruptedException e) {
+            resultado.cancel(false);
+            return;
+        }
+        ConexaoFactory.observarConexoes(conexoes::add);
+        try {
+            if (resultado.isDone()) return; // Substituída ou fora do prazo enquanto esperava
+            resultado.complete(consulta.executar());
+        } catch (SQLException e) {
+            resultado.completeExceptionally(new RuntimeException(descricaoErro + ": " + e.getMessage(), e));
+        } catch (RuntimeException e) {
+            resultado.completeExceptionally(e);
+        } finally {
+            ConexaoFactory.observarConexoes(null);
+            conexoes.clear();
+            permissoes.release();
+        }
+    }
+
+    private static void cancelarNoBanco(Set<Connection> conexoes) {
+        for (Connection conn : conexoes) {
+            try {
+                ConexaoFactory.cancelarConsultaEmAndamento(conn);
+            } catch (SQLException e) {
+                // Já devolvida ao pool ou o banco caiu; não há o que cancelar
+            }
+        }
+    }
+
+    /**
+     * Executa uma tarefa longa (ex: importação) numa thread própria, fora do limite das consultas.
+     */
+    static <T> CompletableFuture<T> executarEmThreadPropria(String nomeThread, Supplier<T> tarefa) {
+        return CompletableFuture.supplyAsync(tarefa, comando -> {
+            Thread thread = new Thread(comando, nomeThread);
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    /**
+     * true se a falha só indica que a consulta foi substituída por uma mais nova da mesma visão.
+     */
+    static boolean foiSubstituida(Throwable erro) {
+        for (Throwable causa = erro; causa != null; causa = causa.getCause()) {
+            if (causa instanceof CancellationException) return true;
+        }
+        return false;
+    }
+}
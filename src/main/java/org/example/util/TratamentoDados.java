@@ -1,9 +1,14 @@
 package org.example.util;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.text.Normalizer;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.concurrent.atomic.LongAdder;
 
 //Métodos estáticos de limpeza
 
@@ -19,9 +24,62 @@ public class TratamentoDados {
                 .replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
     }
 
+    // Resultado do limparTexto para cada caractere do ISO-8859-1 (acento removido e maiúsculo).
+    // 0 = o caractere não vira um único char (ß -> "SS") e vai pelo caminho completo.
+    private static final char[] DOBRA_LATIN1 = new char[256];
+
+    static {
+        for (char c = 0; c < 256; c++) {
+            // Calculado com o próprio algoritmo completo, então o resultado é sempre o mesmo
+            String dobrado = semAcento(String.valueOf(c)).toUpperCase();
+            DOBRA_LATIN1[c] = dobrado.length() == 1 ? dobrado.charAt(0) : 0;
+        }
+    }
+
+    /**
+     * Tira as aspas, apara os espaços, remove os acentos e deixa em maiúsculas.
+     * <p>
+     * Feito numa única passada com a tabela DOBRA_LATIN1 (o arquivo é lido em ISO-8859-1).
+     * Se o texto já estiver limpo (o caso comum em ASCII), devolve a mesma String, sem alocar.
+     * Caracteres fora do Latin-1 usam o caminho completo (Normalizer), com o mesmo resultado de antes.
+     */
     public static String limparTexto(String texto) {
         if (texto == null) return "";
 
+        // Aparar: espaços (como o trim) e aspas, que seriam removidas de qualquer forma
+        int inicio = 0;
+        int fim = texto.length();
+        while (inicio < fim && ignoravelNaPonta(texto.charAt(inicio))) inicio++;
+        while (fim > inicio && ignoravelNaPonta(texto.charAt(fim - 1))) fim--;
+
+        // Caminho rápido: procura o primeiro caractere que precisa mudar
+        int i = inicio;
+        while (i < fim) {
+            char c = texto.charAt(i);
+            if (c > 0xFF || c == '"' || DOBRA_LATIN1[c] != c) break;
+            i++;
+        }
+        if (i == fim) {
+            return inicio == 0 && fim == texto.length() ? texto : texto.substring(inicio, fim);
+        }
+
+        char[] resultado = new char[fim - inicio];
+        int tamanho = 0;
+        for (int j = inicio; j < fim; j++) {
+            char c = texto.charAt(j);
+            if (c == '"') continue;
+            if (c > 0xFF || DOBRA_LATIN1[c] == 0) return limparTextoCompleto(texto);
+            resultado[tamanho++] = DOBRA_LATIN1[c];
+        }
+        return new String(resultado, 0, tamanho);
+    }
+
+    /**
+     * Algoritmo original do limparTexto (Normalizer + regex), para textos fora do Latin-1.
+     */
+    static String limparTextoCompleto(String texto) {
+        if (texto == null) return "";
+
         //1. Remove espaços do começo do fim e aspas duplas que vêm do CSV
         String textoLimpo = texto.replace("\"", "").trim();
 
@@ -58,16 +116,112 @@ public class TratamentoDados {
         }
     }
 
+    /**
+     * Converte um valor no formato brasileiro ("1.234,56") em centavos, sem criar Strings.
+     * Mesmas regras do converterValor: ignora aspas e espaços nas pontas, descarta os pontos
+     * de milhar e usa a vírgula como separador decimal; vazio ou inválido vale 0.
+     * Casas além da segunda são arredondadas (meio para cima), como na coluna DECIMAL(15,2).
+     * Formatos que o converterValor aceita mas este não reconhece (ex: "1e3") são passados
+     * para ele, então o resultado é sempre o mesmo.
+     */
+    public static long converterValorCentavos(CharSequence valorBruto) {
+        if (valorBruto == null) return 0;
+        return converterValorCentavos(valorBruto, null, 0, valorBruto.length());
+    }
+
+    /**
+     * Igual a converterValorCentavos(CharSequence), lendo direto os bytes [inicio, fim)
+     * de um arquivo em ISO-8859-1 (ou qualquer codificação compatível com ASCII).
+     */
+    public static long converterValorCentavos(byte[] dados, int inicio, int fim) {
+        return converterValorCentavos(null, dados, inicio, fim);
+    }
+
+    // Lê do texto ou, se ele for null, dos bytes
+    private static long converterValorCentavos(CharSequence texto, byte[] bytes, int inicio, int fim) {
+        // Pula espaços (e controles, como o trim) e aspas nas pontas
+        while (inicio < fim && ignoravelNaPonta(caractere(texto, bytes, inicio))) inicio++;
+        while (fim > inicio && ignoravelNaPonta(caractere(texto, bytes, fim - 1))) fim--;
+        if (inicio == fim) return 0;
+        int inicioValor = inicio;
+
+        boolean negativo = false;
+        char primeiro = caractere(texto, bytes, inicio);
+        if (primeiro == '-' || primeiro == '+') {
+            negativo = primeiro == '-';
+            inicio++;
+        }
+
+        long inteiro = 0;
+        int digitosInteiros = 0;
+        int casasDecimais = 0;
+        long decimais = 0;
+        boolean arredondarParaCima = false;
+        boolean virgula = false;
+
+        for (int i = inicio; i < fim; i++) {
+            char c = caractere(texto, bytes, i);
+            if (c >= '0' && c <= '9') {
+                int digito = c - '0';
+                if (!virgula) {
+                    if (++digitosInteiros > 16) return converterValorLento(texto, bytes, inicioValor, fim); // Não cabe em centavos
+                    inteiro = inteiro * 10 + digito;
+                } else if (casasDecimais < 2) {
+                    decimais = decimais * 10 + digito;
+                    casasDecimais++;
+                } else if (casasDecimais == 2) {
+                    arredondarParaCima = digito >= 5;
+                    casasDecimais++;
+                }
+            } else if (c == '.' || c == '"') {
+                // Ponto de milhar e aspas são descartados em qualquer posição
+            } else if (c == ',' && !virgula) {
+                virgula = true;
+            } else {
+                return converterValorLento(texto, bytes, inicioValor, fim);
+            }
+        }
+        if (digitosInteiros == 0 && casasDecimais == 0) {
+            return converterValorLento(texto, bytes, inicioValor, fim); // Ex: "-", "," (inválidos)
+        }
+
+        if (casasDecimais == 1) decimais *= 10;
+        long centavos = inteiro * 100 + decimais + (arredondarParaCima ? 1 : 0);
+        return negativo ? -centavos : centavos;
+    }
+
+    private static char caractere(CharSequence texto, byte[] bytes, int posicao) {
+        return texto != null ? texto.charAt(posicao) : (char) (bytes[posicao] & 0xFF);
+    }
+
+    private static boolean ignoravelNaPonta(char c) {
+        return c <= ' ' || c == '"';
+    }
+
+    // Caminho raro: usa o converterValor original e arredonda para centavos
+    private static long converterValorLento(CharSequence texto, byte[] bytes, int inicio, int fim) {
+        String valor = texto != null
+                ? texto.toString()
+                : new String(bytes, inicio, fim - inicio, StandardCharsets.ISO_8859_1);
+        double convertido = converterValor(valor);
+        if (Double.isNaN(convertido) || Double.isInfinite(convertido)) return 0;
+        try {
+            return BigDecimal.valueOf(convertido).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            return 0; // Não cabe em centavos: tratado como inválido
+        }
+    }
+
     public static String[] separarCidadeUF(String destinoBruto) {
         // ATUALIZE O MÉTODO SEPARARCIDA DE UF PARA USAR A GUILHOTINA
         //Valores padrão caso venha vazio
         String cidade = "INDEFINIDO";
         String uf = "XX";
 
-        if (destinoBruto != null && !destinoBruto.isEmpty()) {
-            //Limpa aspas antes de processar
-            String limpo = limparTexto(destinoBruto);
+        //Limpa aspas antes de processar (se já vier limpo, não aloca nada)
+        String limpo = limparTexto(destinoBruto);
 
+        if (!limpo.isEmpty()) {
             if (limpo.contains("/")) {
                 String[] partes = limpo.split("/");
 
@@ -98,23 +252,118 @@ public class TratamentoDados {
         return new String[]{cidade, uf};
     }
 
+    // Formato brasileiro; só usado quando a data não vem no formato fixo dd/MM/yyyy
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    // Cache das datas já convertidas, endereçado pela própria data (ano, mês, dia).
+    // Um arquivo anual tem poucas centenas de datas distintas, então quase tudo é acerto.
+    // Pode ser lido e escrito por várias threads: LocalDate é imutável e cada posição
+    // é conferida antes de ser usada, então uma corrida só custa uma conversão a mais.
+    private static final LocalDate[] CACHE_DATAS = new LocalDate[4096];
+
+    // Datas inválidas trocadas pela data atual (em vez de uma linha no System.err por data)
+    private static final LongAdder DATAS_INVALIDAS = new LongAdder();
+
+    /**
+     * Converte uma data dd/MM/yyyy. Vazia ou inválida vira a data de hoje;
+     * as inválidas são contadas em getTotalDatasInvalidas().
+     * <p>
+     * No formato fixo (10 caracteres, aspas e espaços nas pontas ignorados) lê os dígitos
+     * direto e busca a data no cache, sem alocar. Outros formatos usam o DateTimeFormatter,
+     * com as mesmas regras de antes (ex: 31/02 vira o último dia de fevereiro).
+     */
     public static LocalDate converterData(String dataBruta) {
-        if (dataBruta == null || dataBruta.trim().isEmpty()) {
-            return LocalDate.now(); // Se não tiver data, usa a de hoje como "tapa-buraco"
+        LocalDate data = converterDataOuNull(dataBruta);
+        return data != null ? data : LocalDate.now(); // Se não tiver data, usa a de hoje como "tapa-buraco"
+    }
+
+    /**
+     * Igual a converterData(String), mas devolve null se a data estiver vazia ou for inválida
+     * (as inválidas continuam contadas). Para quem precisa saber que a data não veio do arquivo.
+     */
+    public static LocalDate converterDataOuNull(String dataBruta) {
+        if (dataBruta == null) return null;
+        return converterData(dataBruta, null, 0, dataBruta.length());
+    }
+
+    /**
+     * Igual a converterData(String), lendo direto os bytes [inicio, fim) de um arquivo em ISO-8859-1.
+     */
+    public static LocalDate converterData(byte[] dados, int inicio, int fim) {
+        LocalDate data = converterData(null, dados, inicio, fim);
+        return data != null ? data : LocalDate.now();
+    }
+
+    /**
+     * Quantas datas inválidas foram trocadas pela data atual desde o início do programa.
+     */
+    public static long getTotalDatasInvalidas() {
+        return DATAS_INVALIDAS.sum();
+    }
+
+    // Lê do texto ou, se ele for null, dos bytes. Vazia ou inválida: null
+    private static LocalDate converterData(CharSequence texto, byte[] bytes, int inicio, int fim) {
+        // Tira aspas e espaços das pontas
+        while (inicio < fim && ignoravelNaPonta(caractere(texto, bytes, inicio))) inicio++;
+        while (fim > inicio && ignoravelNaPonta(caractere(texto, bytes, fim - 1))) fim--;
+        if (inicio == fim) return null;
+
+        if (fim - inicio == 10
+                && caractere(texto, bytes, inicio + 2) == '/'
+                && caractere(texto, bytes, inicio + 5) == '/') {
+            int dia = digitos(texto, bytes, inicio, 2);
+            int mes = digitos(texto, bytes, inicio + 3, 2);
+            int ano = digitos(texto, bytes, inicio + 6, 4);
+            if (dia >= 0 && mes >= 0 && ano >= 0) {
+                LocalDate data = buscarData(ano, mes, dia);
+                if (data == null) DATAS_INVALIDAS.increment();
+                return data;
+            }
         }
 
+        // Formato diferente do fixo: caminho completo
+        String valor = texto != null
+                ? texto.toString()
+                : new String(bytes, inicio, fim - inicio, StandardCharsets.ISO_8859_1);
         try {
-            String limpa = limparTexto(dataBruta); // Tira aspas e espaços
+            return LocalDate.parse(limparTexto(valor), FORMATO_DATA); // Tira aspas e espaços
+        } catch (DateTimeParseException e) {
+            DATAS_INVALIDAS.increment();
+            return null;
+        }
+    }
 
-            // Define o formato brasileiro
-            DateTimeFormatter formatador = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    // Valor dos dígitos em [inicio, inicio + quantidade) ou -1 se algum não for dígito
+    private static int digitos(CharSequence texto, byte[] bytes, int inicio, int quantidade) {
+        int valor = 0;
+        for (int i = inicio; i < inicio + quantidade; i++) {
+            char c = caractere(texto, bytes, i);
+            if (c < '0' || c > '9') return -1;
+            valor = valor * 10 + (c - '0');
+        }
+        return valor;
+    }
 
-            return LocalDate.parse(limpa, formatador);
-        } catch (DateTimeParseException e) {
-            System.err.println("Erro ao converter data: " + dataBruta + ". Usando data atual.");
-            return LocalDate.now();
+    /**
+     * Data do cache ou recém-criada; null se o dia ou o mês não existirem.
+     * Dia até 31 num mês mais curto vira o último dia do mês, como no DateTimeFormatter (ResolverStyle.SMART).
+     */
+    private static LocalDate buscarData(int ano, int mes, int dia) {
+        if (ano < 1 || mes < 1 || mes > 12 || dia < 1 || dia > 31) return null; // Ano 0000 não existe em yyyy
+
+        int posicao = ((ano * 12 + mes) * 31 + dia) & (CACHE_DATAS.length - 1);
+        LocalDate data = CACHE_DATAS[posicao];
+        if (data != null && data.getYear() == ano && data.getMonthValue() == mes && data.getDayOfMonth() == dia) {
+            return data;
         }
 
+        int diasNoMes = YearMonth.of(ano, mes).lengthOfMonth();
+        if (dia > diasNoMes) {
+            return LocalDate.of(ano, mes, diasNoMes); // Raro: não vai para o cache
+        }
+        data = LocalDate.of(ano, mes, dia);
+        CACHE_DATAS[posicao] = data;
+        return data;
     }
 
     private static String limitarTexto(String texto, int tamanhoMaximo) {